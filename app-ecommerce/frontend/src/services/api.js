@@ -95,6 +95,7 @@ export const recommendationsAPI = {
   getSimilarProducts: (productId, limit = 5) => api.get(`/api/recommendations/product/${productId}/similar?limit=${limit}`),
   getPopularProducts: (limit = 20) => api.get(`/api/recommendations/popular?limit=${limit}`),
   trackBehavior: (behaviorData) => api.post('/api/recommendations/track', behaviorData),
+  trackBehaviors: (events) => api.post('/api/recommendations/track/batch', events),
   getUserStats: (userId) => api.get(`/api/recommendations/user/${userId}/stats`),
 };
 
@@ -0,0 +1,196 @@
+package com.redhat.ecommerce.product.cache;
+
+import com.redhat.ecommerce.product.model.Category;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable in-memory view of the category tree
+ * Every node carries its precomputed subtree, so resolving a category and all of its
+ * descendants is one map lookup; a rebuilt snapshot replaces the old one in a single write
+ */
+@ApplicationScoped
+public class CategoryTree {
+    
+    private static final Logger LOG = Logger.getLogger(CategoryTree.class);
+    
+    private static final Comparator<Category> SIBLING_ORDER = Comparator
+            .comparing((Category category) -> category.sortOrder != null ? category.sortOrder : 0)
+            .thenComparing(category -> category.name != null ? category.name : "");
+    
+    /** Picks up writes made through other replicas; the initial load is done by CategoryService */
+    @ConfigProperty(name = "product-service.categories.refresh-interval", defaultValue = "PT5M")
+    Duration refreshInterval;
+    
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "category-tree-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    
+    void onStart(@Observes StartupEvent event) {
+        long interval = refreshInterval.toMillis();
+        refresher.scheduleWithFixedDelay(() -> reload().subscribe().with(
+                count -> {},
+                failure -> LOG.warnf("Category tree refresh failed: %s", failure.getMessage())),
+            interval, interval, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+    
+    /**
+     * Re-read the active categories and swap in the rebuilt tree, emitting the number of categories
+     */
+    public Uni<Integer> reload() {
+        return Category.<Category>list("isActive", true)
+            .map(categories -> {
+                Snapshot fresh = Snapshot.of(categories);
+                snapshot = fresh;
+                return fresh.ordered.size();
+            });
+    }
+    
+    /**
+     * Look up a category by id or slug
+     */
+    public Optional<CategoryNode> find(String idOrSlug) {
+        Snapshot current = snapshot;
+        CategoryNode node = current.byId.get(idOrSlug);
+        return Optional.ofNullable(node != null ? node : current.bySlug.get(idOrSlug));
+    }
+    
+    /**
+     * Ids of a category and all of its descendants, for a single $in over products.categoryId
+     * Unknown values are passed through so filtering by a raw category id keeps working
+     */
+    public List<String> subtreeIds(String idOrSlug) {
+        return find(idOrSlug).map(CategoryNode::subtreeIds).orElse(List.of(idOrSlug));
+    }
+    
+    public Optional<String> name(String id) {
+        return find(id).map(node -> node.category().name);
+    }
+    
+    /**
+     * All active categories, depth-first with siblings in sort order
+     */
+    public List<CategoryNode> all() {
+        return snapshot.ordered;
+    }
+    
+    /**
+     * depth is 0 for roots; path is rebuilt from the tree so it is right even for documents written without one
+     */
+    public record CategoryNode(Category category, int depth, String path, List<String> childIds, List<String> subtreeIds) {
+        
+        public String id() {
+            return category.id.toString();
+        }
+    }
+    
+    private static final class Snapshot {
+        static final Snapshot EMPTY = of(List.of());
+        
+        final Map<String, CategoryNode> byId;
+        final Map<String, CategoryNode> bySlug;
+        final List<CategoryNode> ordered;
+        
+        private Snapshot(Map<String, CategoryNode> byId, Map<String, CategoryNode> bySlug, List<CategoryNode> ordered) {
+            this.byId = byId;
+            this.bySlug = bySlug;
+            this.ordered = ordered;
+        }
+        
+        static Snapshot of(List<Category> categories) {
+            Map<String, Category> byId = new HashMap<>();
+            for (Category category : categories) {
+                byId.put(category.id.toString(), category);
+            }
+            
+            // Categories whose parent is missing or inactive are promoted to roots
+            Map<String, List<Category>> children = new HashMap<>();
+            List<Category> roots = new ArrayList<>();
+            for (Category category : categories) {
+                if (category.parentId != null && byId.containsKey(category.parentId)) {
+                    children.computeIfAbsent(category.parentId, key -> new ArrayList<>()).add(category);
+                } else {
+                    roots.add(category);
+                }
+            }
+            children.values().forEach(siblings -> siblings.sort(SIBLING_ORDER));
+            roots.sort(SIBLING_ORDER);
+            
+            Map<String, CategoryNode> nodes = new HashMap<>();
+            List<CategoryNode> ordered = new ArrayList<>(categories.size());
+            Set<String> visited = new HashSet<>();
+            for (Category root : roots) {
+                build(root, 0, "", children, visited, nodes, ordered);
+            }
+            
+            Map<String, CategoryNode> bySlug = new HashMap<>();
+            for (CategoryNode node : ordered) {
+                if (node.category().slug != null) {
+                    bySlug.putIfAbsent(node.category().slug, node);
+                }
+            }
+            return new Snapshot(Map.copyOf(nodes), Map.copyOf(bySlug), Collections.unmodifiableList(ordered));
+        }
+        
+        /**
+         * Depth-first; the node is listed before its children but its subtree is only known afterwards
+         */
+        private static List<String> build(Category category, int depth, String parentPath,
+                                          Map<String, List<Category>> children, Set<String> visited,
+                                          Map<String, CategoryNode> nodes, List<CategoryNode> ordered) {
+            String id = category.id.toString();
+            if (!visited.add(id)) {
+                // A parentId cycle; the category is already placed elsewhere in the tree
+                return List.of();
+            }
+            
+            String path = parentPath + "/" + (category.slug != null ? category.slug : id);
+            int position = ordered.size();
+            ordered.add(null);
+            
+            List<String> childIds = new ArrayList<>();
+            List<String> subtree = new ArrayList<>();
+            subtree.add(id);
+            for (Category child : children.getOrDefault(id, List.of())) {
+                List<String> childSubtree = build(child, depth + 1, path, children, visited, nodes, ordered);
+                if (!childSubtree.isEmpty()) {
+                    childIds.add(child.id.toString());
+                    subtree.addAll(childSubtree);
+                }
+            }
+            
+            CategoryNode node = new CategoryNode(category, depth, path, List.copyOf(childIds), List.copyOf(subtree));
+            ordered.set(position, node);
+            nodes.put(id, node);
+            return node.subtreeIds();
+        }
+    }
+}
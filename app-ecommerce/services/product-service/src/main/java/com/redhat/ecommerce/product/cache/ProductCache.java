@@ -0,0 +1,157 @@
+package com.redhat.ecommerce.product.cache;
+
+import com.redhat.ecommerce.product.event.ProductChangedEvent;
+import com.redhat.ecommerce.product.event.ProductFieldsChangedEvent;
+import com.redhat.ecommerce.product.model.Product;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-process cache of active products keyed by id
+ * Serves single and batch lookups without a MongoDB round trip. A load only fills the cache if nothing
+ * invalidated its id while it was reading, so a slow read never re-caches what a write just replaced.
+ * Invalidation is local to this instance: writes through another replica show up here once ttl expires,
+ * which is why ttl is kept short
+ */
+@ApplicationScoped
+public class ProductCache {
+    
+    private static final Logger LOG = Logger.getLogger(ProductCache.class);
+    
+    // Invalidations are counted per stripe of ids, and clearing the whole cache bumps the epoch
+    private static final int STRIPES = 256;
+    
+    @ConfigProperty(name = "product-service.cache.ttl", defaultValue = "PT30S")
+    Duration ttl;
+    
+    @ConfigProperty(name = "product-service.cache.max-size", defaultValue = "10000")
+    int maxSize;
+    
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    
+    private final AtomicLongArray invalidations = new AtomicLongArray(STRIPES);
+    private final AtomicLong epoch = new AtomicLong();
+    
+    /**
+     * Get a cached product, or null when absent or expired
+     */
+    public Product get(String id) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt - System.nanoTime() < 0) {
+            entries.remove(id, entry);
+            return null;
+        }
+        return entry.product;
+    }
+    
+    /**
+     * Resolve as many ids as possible from the cache
+     * Returned map preserves the order of the requested ids
+     */
+    public Map<String, Product> getAll(Collection<String> ids) {
+        Map<String, Product> found = new LinkedHashMap<>();
+        for (String id : ids) {
+            Product product = get(id);
+            if (product != null) {
+                found.put(id, product);
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * Taken before loading a product from MongoDB and handed back to put
+     */
+    public long stamp(String id) {
+        return epoch.get() + invalidations.get(stripe(id));
+    }
+    
+    /**
+     * Cache a product loaded after stamp was taken; skipped when its id was invalidated since
+     */
+    public void put(Product product, long stamp) {
+        if (product == null || product.id == null) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            evictExpired();
+            if (entries.size() >= maxSize) {
+                // Still full - drop everything rather than track recency on the read path
+                LOG.debugf("Product cache full (%d entries), clearing", entries.size());
+                entries.clear();
+            }
+        }
+        String id = product.id.toString();
+        Entry loaded = new Entry(product, System.nanoTime() + ttl.toNanos());
+        // Checked under the key's lock: invalidate bumps the stamp before removing, so either the
+        // removal comes after this put or the stamp no longer matches
+        entries.compute(id, (key, current) -> stamp(key) == stamp ? loaded : current);
+    }
+    
+    public void invalidate(String id) {
+        invalidations.incrementAndGet(stripe(id));
+        entries.remove(id);
+    }
+    
+    void onProductChanged(@Observes ProductChangedEvent event) {
+        if (event.productId == null) {
+            epoch.incrementAndGet();
+            entries.clear();
+        } else {
+            invalidate(event.productId);
+        }
+    }
+    
+    /**
+     * Price and stock changes replace the cached product with a patched copy, never touching the
+     * instance request threads may be serializing
+     * Only when the cached copy is the immediately preceding version; otherwise it is dropped
+     */
+    void onProductFieldsChanged(@Observes ProductFieldsChangedEvent event) {
+        // Loads that started before this write must not put the previous version back
+        invalidations.incrementAndGet(stripe(event.productId));
+        entries.computeIfPresent(event.productId, (id, entry) -> {
+            long cachedVersion = entry.product.version != null ? entry.product.version : 0L;
+            if (cachedVersion != event.version - 1) {
+                return null;
+            }
+            Product product = entry.product.copy();
+            if (event.price != null) {
+                product.price = event.price;
+            }
+            if (event.comparePrice != null) {
+                product.comparePrice = event.comparePrice;
+            }
+            if (event.stockQuantity != null) {
+                product.stockQuantity = event.stockQuantity;
+            }
+            product.updatedAt = event.updatedAt;
+            product.version = event.version;
+            return new Entry(product, entry.expiresAt);
+        });
+    }
+    
+    private static int stripe(String id) {
+        return (id.hashCode() & Integer.MAX_VALUE) % STRIPES;
+    }
+    
+    private void evictExpired() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> entry.expiresAt - now < 0);
+    }
+    
+    private record Entry(Product product, long expiresAt) {}
+}
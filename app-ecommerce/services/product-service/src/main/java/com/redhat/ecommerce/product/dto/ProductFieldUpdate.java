@@ -0,0 +1,22 @@
+package com.redhat.ecommerce.product.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Partial update of the frequently changing product fields
+ * Only non-null fields are written; stockQuantity sets the stock, stockDelta adjusts it atomically
+ */
+public class ProductFieldUpdate {
+    
+    public BigDecimal price;
+    public BigDecimal comparePrice;
+    public Integer stockQuantity;
+    public Integer stockDelta;
+    public Long expectedVersion; // Optional; when set the update only applies to that version
+    
+    public ProductFieldUpdate() {}
+    
+    public boolean isEmpty() {
+        return price == null && comparePrice == null && stockQuantity == null && stockDelta == null;
+    }
+}
@@ -0,0 +1,24 @@
+package com.redhat.ecommerce.product.event;
+
+import java.time.Instant;
+
+/**
+ * In-process CDI event fired by the product write path
+ * Observed by caches and in-memory indexes that derive data from the catalog
+ */
+public class ProductChangedEvent {
+    
+    public enum ChangeType {
+        CREATED, UPDATED, BULK_IMPORTED
+    }
+    
+    public final String productId; // null when many products changed at once (BULK_IMPORTED)
+    public final ChangeType changeType;
+    public final Instant timestamp;
+    
+    public ProductChangedEvent(String productId, ChangeType changeType) {
+        this.productId = productId;
+        this.changeType = changeType;
+        this.timestamp = Instant.now();
+    }
+}
@@ -0,0 +1,28 @@
+package com.redhat.ecommerce.product.event;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * In-process CDI event fired by the price/stock update path
+ * Carries the new values so observers can patch what they hold instead of reloading the product
+ */
+public class ProductFieldsChangedEvent {
+    
+    public final String productId;
+    public final long version;
+    public final BigDecimal price; // null when unchanged
+    public final BigDecimal comparePrice; // null when unchanged
+    public final Integer stockQuantity; // null when unchanged
+    public final Instant updatedAt;
+    
+    public ProductFieldsChangedEvent(String productId, long version, BigDecimal price,
+                                     BigDecimal comparePrice, Integer stockQuantity, Instant updatedAt) {
+        this.productId = productId;
+        this.version = version;
+        this.price = price;
+        this.comparePrice = comparePrice;
+        this.stockQuantity = stockQuantity;
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,56 @@
+package com.redhat.ecommerce.product.model;
+
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoEntity;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A node of the category tree
+ * path is materialized on write ("/apparel/tech-polos") and ancestorIds lists the parents from the root down
+ */
+@MongoEntity(collection = "categories")
+public class Category extends ReactivePanacheMongoEntity {
+    
+    public String name;
+    public String description;
+    public String slug;
+    public String color;
+    public String parentId;
+    public List<String> ancestorIds = List.of();
+    public String path;
+    public Boolean isActive = true;
+    public Integer sortOrder = 0;
+    public Instant createdAt;
+    public Instant updatedAt;
+    
+    public Category() {}
+    
+    Category(String id, String name, String slug, String color, String description, int sortOrder) {
+        this.id = new ObjectId(id);
+        this.name = name;
+        this.slug = slug;
+        this.color = color;
+        this.description = description;
+        this.sortOrder = sortOrder;
+        this.path = "/" + slug;
+    }
+    
+    /**
+     * The categories the catalog shipped with, used to seed an empty collection
+     */
+    public static List<Category> defaults() {
+        return List.of(
+            new Category("64f8b3c4d1234567890abcd1", "Programming Languages", "programming-languages", "#3b82f6",
+                    "Polo shirts featuring your favorite programming languages", 1),
+            new Category("64f8b3c4d1234567890abcd2", "Cloud Platforms", "cloud-platforms", "#10b981",
+                    "Show your cloud expertise with these stylish polos", 2),
+            new Category("64f8b3c4d1234567890abcd3", "DevOps Tools", "devops-tools", "#8b5cf6",
+                    "DevOps and infrastructure tool themed polo shirts", 3),
+            new Category("64f8b3c4d1234567890abcd4", "Tech Companies", "tech-companies", "#f59e0b",
+                    "Polo shirts featuring major tech companies", 4)
+        );
+    }
+}
@@ -1,14 +1,20 @@
 package com.redhat.ecommerce.product.model;
 
-import io.quarkus.mongodb.panache.PanacheMongoEntity;
 import io.quarkus.mongodb.panache.common.MongoEntity;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoEntity;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheQuery;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 @MongoEntity(collection = "products")
-public class Product extends PanacheMongoEntity {
+public class Product extends ReactivePanacheMongoEntity {
     
     public String name;
     public String description;
@@ -20,42 +26,192 @@ public class Product extends PanacheMongoEntity {
     public String categoryId;
     public List<String> tags;
     public List<String> images;
+    public List<ImageVariants> imageVariants; // Derived from images in the background, see ImageVariantWorker
+    public Long variantsRevision; // Incremented when imageVariants are regenerated; never touches version
     public Boolean isActive = true;
     public Boolean isFeatured = false;
     public Integer stockQuantity;
     public String brand;
     public BigDecimal rating;
     public Integer reviewCount;
+    public Double popularityScore; // Maintained on every write, see refreshPopularityScore()
+    public Long version; // Incremented on every write; null for documents that predate it
     public ProductMetadata metadata;
     public Instant createdAt;
     public Instant updatedAt;
     
-    // Panache finder methods
-    public static List<Product> findActive() {
-        return list("isActive", true);
+    /**
+     * Most popular first; many products share a score (everything unreviewed and not featured scores 0),
+     * so _id breaks ties and skip/limit pages neither repeat nor miss products
+     */
+    public static final Document BY_POPULARITY = new Document("popularityScore", -1).append("_id", -1);
+    
+    public static final Document BY_ID = new Document("_id", 1);
+    
+    // Finder filters, shared with ProductIndexManager so the query plans it checks are the ones issued here
+    public static Document activeFilter() {
+        return new Document("isActive", true);
     }
     
-    public static List<Product> findFeatured() {
-        return list("isFeatured = true and isActive = true");
+    public static Document featuredFilter() {
+        return new Document("isFeatured", true).append("isActive", true);
     }
     
-    public static List<Product> findByCategory(String categoryId) {
-        return list("categoryId = ?1 and isActive = true", categoryId);
+    public static Document categoryFilter(Collection<String> categoryIds) {
+        return new Document("categoryId", new Document("$in", categoryIds)).append("isActive", true);
     }
     
-    public static Product findBySlug(String slug) {
-        return find("slug = ?1 and isActive = true", slug).firstResult();
+    public static Document slugFilter(String slug) {
+        return new Document("slug", slug).append("isActive", true);
     }
     
-    public static List<Product> searchByName(String query) {
-        // Simple search using Panache find method with case-insensitive regex
-        return findActive().stream()
-            .filter(product -> 
-                product.name.toLowerCase().contains(query.toLowerCase()) ||
-                (product.description != null && product.description.toLowerCase().contains(query.toLowerCase())) ||
-                (product.tags != null && product.tags.stream().anyMatch(tag -> tag.toLowerCase().contains(query.toLowerCase())))
-            )
+    public static Document activeAfterFilter(ObjectId after) {
+        Document filter = activeFilter();
+        if (after != null) {
+            filter.append("_id", new Document("$gt", after));
+        }
+        return filter;
+    }
+    
+    // Panache finder methods - non-blocking, results are emitted on the Mongo reactive client
+    public static Uni<List<Product>> findActive() {
+        return list(activeFilter());
+    }
+    
+    public static Multi<Product> streamActive() {
+        return stream(activeFilter());
+    }
+    
+    public static Uni<List<Product>> findFeatured() {
+        return list(featuredFilter());
+    }
+    
+    /**
+     * Products in any of the given categories, typically a category plus its descendants from CategoryTree
+     */
+    public static Uni<List<Product>> findByCategory(Collection<String> categoryIds) {
+        return list(categoryFilter(categoryIds));
+    }
+    
+    public static Uni<Product> findBySlug(String slug) {
+        return find(slugFilter(slug)).firstResult();
+    }
+    
+    public static Uni<List<Product>> findActiveByIds(Collection<String> ids) {
+        // Single $in query on _id; malformed ids can never match so they are skipped
+        List<ObjectId> objectIds = ids.stream()
+            .filter(ObjectId::isValid)
+            .map(ObjectId::new)
             .toList();
+        if (objectIds.isEmpty()) {
+            return Uni.createFrom().item(List.of());
+        }
+        return list(new Document("_id", new Document("$in", objectIds)).append("isActive", true));
+    }
+    
+    /**
+     * Active products ranked by the stored popularity score, optionally narrowed to featured or a set of categories
+     * Backed by the (isActive, popularityScore, _id) index so pagination happens in MongoDB
+     */
+    public static ReactivePanacheQuery<Product> findActiveByPopularity(boolean featuredOnly, Collection<String> categoryIds) {
+        if (featuredOnly) {
+            return find(featuredFilter(), BY_POPULARITY);
+        } else if (categoryIds != null) {
+            return find(categoryFilter(categoryIds), BY_POPULARITY);
+        }
+        return find(activeFilter(), BY_POPULARITY);
+    }
+    
+    /**
+     * Active products in _id order after the given id, from the start when null
+     * Keyset paging: unlike offsets over a ranking, concurrent writes never shift later pages
+     */
+    public static ReactivePanacheQuery<Product> findActiveAfter(ObjectId after) {
+        return find(activeAfterFilter(after), BY_ID);
+    }
+    
+    public static Uni<List<Product>> searchByName(String query) {
+        // Streams the active catalog and keeps matches, so only matching products are buffered
+        String needle = query.toLowerCase();
+        return streamActive()
+            .select().where(product -> 
+                (product.name != null && product.name.toLowerCase().contains(needle)) ||
+                (product.description != null && product.description.toLowerCase().contains(needle)) ||
+                (product.tags != null && product.tags.stream().anyMatch(tag -> tag.toLowerCase().contains(needle)))
+            )
+            .collect().asList();
+    }
+    
+    /**
+     * Popularity as shared with the Recommendation Service: rating * reviewCount + featuredBonus
+     */
+    public static double calculatePopularityScore(BigDecimal rating, Integer reviewCount, Boolean isFeatured) {
+        double baseScore = (rating != null ? rating.doubleValue() : 0.0) * 
+                          (reviewCount != null ? reviewCount : 0);
+        double featuredBonus = (isFeatured != null && isFeatured) ? 100.0 : 0.0;
+        return baseScore + featuredBonus;
+    }
+    
+    public void refreshPopularityScore() {
+        popularityScore = calculatePopularityScore(rating, reviewCount, isFeatured);
+    }
+    
+    /**
+     * Shallow copy, for changing scalar fields of a product other threads may be reading
+     */
+    public Product copy() {
+        Product copy = new Product();
+        copy.id = id;
+        copy.name = name;
+        copy.description = description;
+        copy.shortDescription = shortDescription;
+        copy.slug = slug;
+        copy.sku = sku;
+        copy.price = price;
+        copy.comparePrice = comparePrice;
+        copy.categoryId = categoryId;
+        copy.tags = tags;
+        copy.images = images;
+        copy.imageVariants = imageVariants;
+        copy.variantsRevision = variantsRevision;
+        copy.isActive = isActive;
+        copy.isFeatured = isFeatured;
+        copy.stockQuantity = stockQuantity;
+        copy.brand = brand;
+        copy.rating = rating;
+        copy.reviewCount = reviewCount;
+        copy.popularityScore = popularityScore;
+        copy.version = version;
+        copy.metadata = metadata;
+        copy.createdAt = createdAt;
+        copy.updatedAt = updatedAt;
+        return copy;
+    }
+    
+    /**
+     * Sized renditions of one entry of images; source is the original URL they were derived from
+     */
+    public static class ImageVariants {
+        public String source;
+        public ImageRef thumbnail;
+        public ImageRef card;
+        public ImageRef detail;
+        
+        public ImageVariants() {}
+    }
+    
+    public static class ImageRef {
+        public String url;
+        public Integer width; // null when the size of the served image is not known
+        public Integer height;
+        
+        public ImageRef() {}
+        
+        public ImageRef(String url, Integer width, Integer height) {
+            this.url = url;
+            this.width = width;
+            this.height = height;
+        }
     }
     
     public static class ProductMetadata {
@@ -0,0 +1,157 @@
+package com.redhat.ecommerce.product.resource;
+
+import com.redhat.ecommerce.product.model.Product;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Validators and Cache-Control for product responses
+ * ETags are derived from what identifies a product version (id + last write), never from the
+ * serialized body, so a 304 can be answered before anything is rendered
+ */
+@ApplicationScoped
+public class ProductCacheHeaders {
+    
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    
+    @ConfigProperty(name = "product-service.http.cache.enabled", defaultValue = "true")
+    boolean enabled;
+    
+    @ConfigProperty(name = "product-service.http.cache.max-age", defaultValue = "60")
+    long maxAgeSeconds;
+    
+    @ConfigProperty(name = "product-service.http.cache.stale-while-revalidate", defaultValue = "300")
+    long staleWhileRevalidateSeconds;
+    
+    public EntityTag etag(Product product) {
+        return new EntityTag(product.id + "-" + versionOf(product), true);
+    }
+    
+    /**
+     * What a client's If-Match asks of the given product
+     */
+    public static IfMatch ifMatch(String header, String productId) {
+        if (header == null || header.isBlank()) {
+            return IfMatch.ABSENT;
+        }
+        String prefix = productId + "-v";
+        Set<Long> versions = new HashSet<>();
+        for (String entry : header.split(",")) {
+            String tag = entry.trim().replace("W/", "").replace("\"", "");
+            if (tag.equals("*")) {
+                return IfMatch.ANY;
+            }
+            if (!tag.startsWith(prefix)) {
+                continue;
+            }
+            // Drop the image variants revision, it is not part of the write version
+            int revision = tag.indexOf('.', prefix.length());
+            try {
+                versions.add(Long.parseLong(tag.substring(prefix.length(), revision >= 0 ? revision : tag.length())));
+            } catch (NumberFormatException e) {
+                // Not one of our tags, so it cannot match
+            }
+        }
+        // A write checks a single version, so a list naming several can never be honored
+        return new IfMatch(true, versions.size() == 1 ? versions.iterator().next() : null);
+    }
+    
+    /**
+     * Changes when any product on the page changes, the page composition changes or the total moves
+     * extra carries anything else the body depends on (e.g. facet counts)
+     */
+    public EntityTag etag(Collection<Product> page, long total, Object... extra) {
+        long hash = mix(FNV_OFFSET, Long.toString(total));
+        for (Product product : page) {
+            hash = mix(hash, product.id.toString());
+            hash = mix(hash, versionOf(product));
+        }
+        for (Object value : extra) {
+            hash = mix(hash, String.valueOf(value));
+        }
+        return new EntityTag(Long.toHexString(hash), true);
+    }
+    
+    public static Instant lastModified(Product product) {
+        return product.updatedAt != null ? product.updatedAt : product.createdAt;
+    }
+    
+    /**
+     * A 304 builder when the client's copy is still current, otherwise null
+     */
+    public Response.ResponseBuilder notModified(Request request, EntityTag etag, Instant lastModified) {
+        if (!enabled) {
+            return null;
+        }
+        Response.ResponseBuilder builder = lastModified != null
+                ? request.evaluatePreconditions(Date.from(lastModified), etag)
+                : request.evaluatePreconditions(etag);
+        return builder != null ? withValidators(builder, etag, lastModified) : null;
+    }
+    
+    public Response.ResponseBuilder withValidators(Response.ResponseBuilder builder, EntityTag etag, Instant lastModified) {
+        if (!enabled) {
+            return builder;
+        }
+        builder.tag(etag)
+               .header(HttpHeaders.CACHE_CONTROL, "public, max-age=" + maxAgeSeconds
+                       + ", stale-while-revalidate=" + staleWhileRevalidateSeconds);
+        if (lastModified != null) {
+            builder.lastModified(Date.from(lastModified));
+        }
+        return builder;
+    }
+    
+    /**
+     * The write version when the document has one, plus the image variants revision once variants exist;
+     * the last write time for older documents
+     */
+    private static String versionOf(Product product) {
+        if (product.version != null) {
+            return product.variantsRevision != null
+                    ? "v" + product.version + "." + product.variantsRevision
+                    : "v" + product.version;
+        }
+        Instant modified = lastModified(product);
+        return Long.toString(modified != null ? modified.toEpochMilli() : 0L);
+    }
+    
+    /**
+     * A precondition on a write: absent, any existing product (*), or one write version; a present header
+     * naming no version of this product (another product, a pre-version ETag, garbage) can never be met
+     */
+    public record IfMatch(boolean present, Long version) {
+        
+        static final IfMatch ABSENT = new IfMatch(false, null);
+        static final IfMatch ANY = new IfMatch(true, null);
+        
+        public boolean matchesAny() {
+            return this == ANY;
+        }
+        
+        public boolean unsatisfiable() {
+            return present && version == null && !matchesAny();
+        }
+    }
+    
+    private static long mix(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        // Separator so ("ab","c") and ("a","bc") differ
+        hash ^= 0xff;
+        return hash * FNV_PRIME;
+    }
+}
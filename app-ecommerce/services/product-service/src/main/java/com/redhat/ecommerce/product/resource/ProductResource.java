@@ -1,20 +1,46 @@
 package com.redhat.ecommerce.product.resource;
 
+import com.redhat.ecommerce.product.cache.CategoryTree;
+import com.redhat.ecommerce.product.cache.ProductCache;
+import com.redhat.ecommerce.product.dto.ProductFieldUpdate;
+import com.redhat.ecommerce.product.model.Category;
 import com.redhat.ecommerce.product.model.Product;
+import com.redhat.ecommerce.product.search.CatalogFacetIndex;
+import com.redhat.ecommerce.product.search.SuggestionIndex;
+import com.redhat.ecommerce.product.service.CategoryService;
+import com.redhat.ecommerce.product.service.ProductImportService;
+import com.redhat.ecommerce.product.service.ProductService;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheQuery;
+import io.smallrye.common.annotation.Blocking;
 import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.bson.types.ObjectId;
 import org.jboss.logging.Logger;
 
 import jakarta.annotation.security.PermitAll;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Path("/products")
 @Produces(MediaType.APPLICATION_JSON)
@@ -24,6 +50,44 @@ public class ProductResource {
     
     private static final Logger LOG = Logger.getLogger(ProductResource.class);
     
+    private static final String SORT_POPULARITY = "popularity";
+    
+    // Walks the whole active catalog with the after cursor instead of offset
+    private static final String SORT_ID = "id";
+    
+    private static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+    private static final String MEDIA_TYPE_CSV = "text/csv";
+    
+    @Inject
+    ProductCache productCache;
+    
+    @Inject
+    ProductService productService;
+    
+    @Inject
+    CatalogFacetIndex facetIndex;
+    
+    @Inject
+    SuggestionIndex suggestionIndex;
+    
+    @Inject
+    ProductCacheHeaders cacheHeaders;
+    
+    @Inject
+    ProductImportService importService;
+    
+    @Inject
+    CategoryTree categoryTree;
+    
+    @Inject
+    CategoryService categoryService;
+    
+    @ConfigProperty(name = "product-service.batch.max-ids", defaultValue = "100")
+    int maxBatchIds;
+    
+    @ConfigProperty(name = "product-service.search.max-suggestions", defaultValue = "20")
+    int maxSuggestions;
+    
     @GET
     @PermitAll
     @Operation(summary = "List all products")
@@ -32,67 +96,292 @@ public class ProductResource {
             @QueryParam("featured") @DefaultValue("false") boolean featured,
             @QueryParam("category") String category,
             @QueryParam("search") String search,
+            @QueryParam("sort") String sort,
+            @QueryParam("facets") @DefaultValue("false") boolean facets,
             @QueryParam("limit") @DefaultValue("20") int limit,
-            @QueryParam("offset") @DefaultValue("0") int offset) {
+            @QueryParam("offset") @DefaultValue("0") int offset,
+            @QueryParam("after") String after,
+            @Context Request request) {
         
-        return Uni.createFrom().item(() -> {
-            LOG.infof("Listing products: featured=%s, category=%s, search=%s, limit=%d", featured, category, search, limit);
-            
-            List<Product> products;
+        LOG.infof("Listing products: featured=%s, category=%s, search=%s, sort=%s, limit=%d", featured, category, search, sort, limit);
+        
+        if (after != null && !ObjectId.isValid(after)) {
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("success", false, "message", "after must be a product id"))
+                    .build());
+        }
+        boolean byId = SORT_ID.equalsIgnoreCase(sort);
+        boolean byPopularity = SORT_POPULARITY.equalsIgnoreCase(sort);
+        boolean searching = search != null && !search.trim().isEmpty();
+        // A parent category also matches everything below it
+        List<String> categoryIds = category != null && !category.isBlank() ? categoryTree.subtreeIds(category.trim()) : null;
+        
+        Uni<ProductPage> page;
+        
+        if (byId && !searching && !featured && categoryIds == null) {
+            // The next page starts after the last id of this one
+            ReactivePanacheQuery<Product> ordered = Product.findActiveAfter(after != null ? new ObjectId(after) : null);
+            Uni<List<Product>> items = limit > 0
+                    ? ordered.range(0, limit - 1).list()
+                    : Uni.createFrom().item(List.of());
+            page = Uni.combine().all().unis(items, Product.count(Product.activeFilter())).asTuple()
+                .map(result -> new ProductPage(result.getItem1(), result.getItem2(),
+                        facets ? facetIndex.matching(false, null) : null));
+        } else if (byPopularity && !searching) {
+            // Ranked and paginated by MongoDB using the stored popularity score
+            ReactivePanacheQuery<Product> ranked = Product.findActiveByPopularity(featured, categoryIds);
+            Uni<Long> total = ranked.count();
+            Uni<List<Product>> items = limit > 0
+                    ? ranked.range(offset, offset + limit - 1).list()
+                    : Uni.createFrom().item(List.of());
+            page = Uni.combine().all().unis(items, total).asTuple()
+                .map(result -> new ProductPage(result.getItem1(), result.getItem2(),
+                        facets ? facetIndex.matching(featured, categoryIds) : null));
+        } else {
+            Uni<List<Product>> products;
             
-            if (search != null && !search.trim().isEmpty()) {
+            if (searching) {
                 // Search by name, description, or tags
                 products = Product.searchByName(search.trim());
+                if (byPopularity) {
+                    products = products.map(found -> found.stream()
+                        .sorted(Comparator.comparingDouble(ProductResource::popularityOf).reversed())
+                        .toList());
+                }
             } else if (featured) {
                 products = Product.findFeatured();
-            } else if (category != null) {
-                products = Product.findByCategory(category);
+            } else if (categoryIds != null) {
+                products = Product.findByCategory(categoryIds);
             } else {
                 products = Product.findActive();
             }
             
             // Apply pagination
-            List<Product> paginatedProducts = products.stream()
-                    .skip(offset)
-                    .limit(limit)
-                    .toList();
+            page = products.map(all -> new ProductPage(
+                all.stream().skip(offset).limit(limit).toList(),
+                all.size(),
+                !facets ? null : searching ? facetIndex.matching(all) : facetIndex.matching(featured, categoryIds)));
+        }
+        
+        return page.map(result -> {
+            // Answer revalidations before rendering anything
+            EntityTag etag = result.matches() != null
+                    ? cacheHeaders.etag(result.items(), result.total(), result.matches().generation())
+                    : cacheHeaders.etag(result.items(), result.total());
+            // No Last-Modified: a page's newest updatedAt misses deletions and products moving on or off it
+            Response.ResponseBuilder notModified = cacheHeaders.notModified(request, etag, null);
+            if (notModified != null) {
+                return notModified.build();
+            }
             
             // Enrich products with popularity score for consistency with recommendations
-            List<Map<String, Object>> enrichedProducts = paginatedProducts.stream()
-                .map(this::enrichProductWithPopularityScore)
+            List<Map<String, Object>> enrichedProducts = result.items().stream()
+                .map(this::toListItem)
                 .toList();
             
-            return Response.ok(Map.of(
-                "success", true,
-                "data", enrichedProducts,
-                "pagination", Map.of(
-                    "offset", offset,
-                    "limit", limit,
-                    "total", products.size()
-                ),
-                "timestamp", Instant.now()
-            )).build();
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("success", true);
+            body.put("data", enrichedProducts);
+            body.put("pagination", Map.of(
+                "offset", offset,
+                "limit", limit,
+                "total", result.total()
+            ));
+            if (result.matches() != null) {
+                body.put("facets", facetIndex.facetCounts(result.matches()));
+            }
+            body.put("timestamp", Instant.now());
+            
+            return cacheHeaders.withValidators(Response.ok(body), etag, null).build();
         });
     }
     
+    @POST
+    @Operation(summary = "Create product (admin)")
+    @APIResponse(responseCode = "201", description = "Product created")
+    @APIResponse(responseCode = "403", description = "Admin role required")
+    public Uni<Response> createProduct(@HeaderParam("X-User-Roles") String roles, Product product) {
+        
+        if (!isAdmin(roles)) {
+            return Uni.createFrom().item(forbidden());
+        }
+        if (product == null || product.name == null || product.name.isBlank()) {
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("success", false, "message", "Product name required"))
+                    .build());
+        }
+        
+        return productService.create(product)
+            .map(created -> Response.status(Response.Status.CREATED)
+                    .entity(Map.of("success", true, "data", enrichProductWithPopularityScore(created)))
+                    .build());
+    }
+    
+    @POST
+    @Path("/import")
+    @Consumes({MEDIA_TYPE_NDJSON, MEDIA_TYPE_CSV})
+    @Blocking
+    @Operation(summary = "Bulk import or upsert products from NDJSON or CSV, keyed on sku (admin)")
+    @APIResponse(responseCode = "200", description = "Import finished, see per-row errors")
+    @APIResponse(responseCode = "500", description = "Import timed out before every batch was written")
+    @APIResponse(responseCode = "403", description = "Admin role required")
+    public Response importProducts(@HeaderParam("X-User-Roles") String roles,
+                                   @HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType,
+                                   InputStream body) throws IOException {
+        if (!isAdmin(roles)) {
+            return forbidden();
+        }
+        
+        ProductImportService.Format format = contentType != null && contentType.startsWith(MEDIA_TYPE_CSV)
+                ? ProductImportService.Format.CSV
+                : ProductImportService.Format.NDJSON;
+        LOG.infof("Starting %s product import", format);
+        
+        ProductImportService.ImportReport report = importService.importProducts(body, format);
+        
+        if (!report.completed) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(Map.of(
+                        "success", false,
+                        "message", "Import timed out with batches still being written; counts are partial",
+                        "data", report
+                    )).build();
+        }
+        return Response.ok(Map.of(
+            "success", report.failed == 0,
+            "data", report
+        )).build();
+    }
+    
+    @PUT
+    @Path("/{id}")
+    @Operation(summary = "Update product (admin)")
+    @APIResponse(responseCode = "200", description = "Product updated")
+    @APIResponse(responseCode = "403", description = "Admin role required")
+    @APIResponse(responseCode = "404", description = "Product not found")
+    public Uni<Response> updateProduct(@HeaderParam("X-User-Roles") String roles,
+                                       @PathParam("id") String id, Product product) {
+        
+        if (!isAdmin(roles)) {
+            return Uni.createFrom().item(forbidden());
+        }
+        if (product == null) {
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("success", false, "message", "Product body required"))
+                    .build());
+        }
+        
+        return productService.update(id, product)
+            .map(updated -> updated == null
+                    ? Response.status(Response.Status.NOT_FOUND)
+                        .entity(Map.of("success", false, "message", "Product not found"))
+                        .build()
+                    : Response.ok(Map.of("success", true, "data", enrichProductWithPopularityScore(updated))).build());
+    }
+    
+    @PATCH
+    @Path("/{id}")
+    @Operation(summary = "Update price and stock in place (admin)")
+    @APIResponse(responseCode = "200", description = "Fields updated")
+    @APIResponse(responseCode = "403", description = "Admin role required")
+    @APIResponse(responseCode = "404", description = "Product not found")
+    @APIResponse(responseCode = "409", description = "Version changed or not enough stock")
+    @APIResponse(responseCode = "412", description = "If-Match does not match the current version")
+    public Uni<Response> updateProductFields(@HeaderParam("X-User-Roles") String roles,
+                                             @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+                                             @PathParam("id") String id, ProductFieldUpdate update) {
+        
+        if (!isAdmin(roles)) {
+            return Uni.createFrom().item(forbidden());
+        }
+        String invalid = validate(update);
+        if (invalid != null) {
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("success", false, "message", invalid))
+                    .build());
+        }
+        // If-Match (an ETag from GET /products/{id}) is an alternative to expectedVersion in the body;
+        // a client that sent a precondition never gets an unconditional write
+        ProductCacheHeaders.IfMatch precondition = ProductCacheHeaders.ifMatch(ifMatch, id);
+        if (precondition.unsatisfiable()
+                || (precondition.version() != null && update.expectedVersion != null
+                        && !precondition.version().equals(update.expectedVersion))) {
+            return Uni.createFrom().item(Response.status(Response.Status.PRECONDITION_FAILED)
+                    .entity(Map.of("success", false, "message", "If-Match does not name a version of this product"))
+                    .build());
+        }
+        if (update.expectedVersion == null) {
+            update.expectedVersion = precondition.version();
+        }
+        
+        return productService.updateFields(id, update)
+            .map(result -> switch (result.status()) {
+                case UPDATED -> {
+                    Map<String, Object> data = new LinkedHashMap<>();
+                    data.put("id", id);
+                    data.put("price", result.product().price);
+                    data.put("comparePrice", result.product().comparePrice);
+                    data.put("stockQuantity", result.product().stockQuantity);
+                    data.put("version", result.product().version);
+                    data.put("updatedAt", result.product().updatedAt);
+                    yield Response.ok(Map.of("success", true, "data", data))
+                            .tag(cacheHeaders.etag(result.product()))
+                            .build();
+                }
+                case NOT_FOUND -> Response.status(precondition.present()
+                                ? Response.Status.PRECONDITION_FAILED : Response.Status.NOT_FOUND)
+                        .entity(Map.of("success", false, "message", "Product not found"))
+                        .build();
+                case VERSION_CONFLICT -> Response.status(precondition.version() != null
+                                ? Response.Status.PRECONDITION_FAILED : Response.Status.CONFLICT)
+                        .entity(Map.of("success", false, "message", "Product was modified",
+                                "currentVersion", result.product().version != null ? result.product().version : 0L))
+                        .build();
+                case INSUFFICIENT_STOCK -> Response.status(Response.Status.CONFLICT)
+                        .entity(Map.of("success", false, "message", "Not enough stock",
+                                "stockQuantity", result.product().stockQuantity != null ? result.product().stockQuantity : 0))
+                        .build();
+            });
+    }
+    
     @GET
     @Path("/{id}")
     @PermitAll
     @Operation(summary = "Get product by ID")
     @APIResponse(responseCode = "200", description = "Product retrieved successfully")
     @APIResponse(responseCode = "404", description = "Product not found")
-    public Uni<Response> getProduct(@PathParam("id") String id) {
+    public Uni<Response> getProduct(@PathParam("id") String id, @Context Request request) {
         
-        return Uni.createFrom().item(() -> {
-            LOG.infof("Getting product: %s", id);
-            
-            Product product = Product.findById(id);
-            
+        LOG.infof("Getting product: %s", id);
+        
+        Product cached = productCache.get(id);
+        Uni<Product> lookup;
+        if (cached != null) {
+            lookup = Uni.createFrom().item(cached);
+        } else if (ObjectId.isValid(id)) {
+            long stamp = productCache.stamp(id);
+            lookup = Product.<Product>findById(new ObjectId(id))
+                .invoke(product -> {
+                    if (product != null && product.isActive) {
+                        productCache.put(product, stamp);
+                    }
+                });
+        } else {
+            lookup = Uni.createFrom().nullItem();
+        }
+        
+        return lookup.map(product -> {
             if (product != null && product.isActive) {
-                return Response.ok(Map.of(
+                EntityTag etag = cacheHeaders.etag(product);
+                Instant lastModified = ProductCacheHeaders.lastModified(product);
+                Response.ResponseBuilder notModified = cacheHeaders.notModified(request, etag, lastModified);
+                if (notModified != null) {
+                    return notModified.build();
+                }
+                return cacheHeaders.withValidators(Response.ok(Map.of(
                     "success", true,
                     "data", product
-                )).build();
+                )), etag, lastModified).build();
             } else {
                 return Response.status(Response.Status.NOT_FOUND)
                         .entity(Map.of(
@@ -104,32 +393,113 @@ public class ProductResource {
     }
     
     @GET
-    @Path("/search")
+    @Path("/batch")
     @PermitAll
-    @Operation(summary = "Search products")
-    @APIResponse(responseCode = "200", description = "Search results")
-    public Uni<Response> searchProducts(@QueryParam("q") String query) {
+    @Operation(summary = "Get many products by ID in one call")
+    @APIResponse(responseCode = "200", description = "Products retrieved successfully")
+    @APIResponse(responseCode = "400", description = "Missing ids or too many ids requested")
+    public Uni<Response> getProductsByIds(
+            @QueryParam("ids") String ids,
+            @QueryParam("fields") String fields) {
         
-        return Uni.createFrom().item(() -> {
-            LOG.infof("Searching products: %s", query);
-            
-            if (query == null || query.trim().isEmpty()) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity(Map.of("success", false, "message", "Search query required"))
-                        .build();
+        Set<String> requestedIds = splitCsv(ids);
+        LOG.debugf("Batch lookup of %d products (fields=%s)", requestedIds.size(), fields);
+        
+        if (requestedIds.isEmpty()) {
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("success", false, "message", "At least one product id required"))
+                    .build());
+        }
+        if (requestedIds.size() > maxBatchIds) {
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("success", false,
+                            "message", "Too many ids requested, maximum is " + maxBatchIds))
+                    .build());
+        }
+        
+        // Serve what we can from cache, then fetch the rest with a single $in query
+        Map<String, Product> found = productCache.getAll(requestedIds);
+        List<String> uncached = requestedIds.stream()
+                .filter(id -> !found.containsKey(id))
+                .toList();
+        Map<String, Long> stamps = new HashMap<>();
+        uncached.forEach(id -> stamps.put(id, productCache.stamp(id)));
+        Uni<List<Product>> fetched = uncached.isEmpty()
+                ? Uni.createFrom().item(List.of())
+                : Product.findActiveByIds(uncached);
+        
+        return fetched.map(products -> {
+            for (Product product : products) {
+                String id = product.id.toString();
+                productCache.put(product, stamps.getOrDefault(id, -1L));
+                found.put(id, product);
             }
             
-            List<Product> products = Product.searchByName(query.trim());
+            Set<String> projection = splitCsv(fields);
+            List<Map<String, Object>> data = new ArrayList<>(found.size());
+            List<String> missing = new ArrayList<>();
+            for (String id : requestedIds) {
+                Product product = found.get(id);
+                if (product != null && product.isActive) {
+                    data.add(project(enrichProductWithPopularityScore(product), projection));
+                } else {
+                    missing.add(id);
+                }
+            }
             
             return Response.ok(Map.of(
                 "success", true,
-                "data", products,
-                "query", query,
-                "count", products.size()
+                "data", data,
+                "missing", missing,
+                "count", data.size()
             )).build();
         });
     }
     
+    @GET
+    @Path("/suggest")
+    @PermitAll
+    @Operation(summary = "Typeahead suggestions for product names, brands and tags")
+    @APIResponse(responseCode = "200", description = "Suggestions ranked by popularity")
+    public Uni<Response> suggest(
+            @QueryParam("q") String prefix,
+            @QueryParam("limit") @DefaultValue("8") int limit) {
+        
+        // Served from memory, no database access per keystroke
+        List<SuggestionIndex.Suggestion> suggestions =
+                suggestionIndex.suggest(prefix, Math.min(limit, maxSuggestions));
+        
+        return Uni.createFrom().item(Response.ok(Map.of(
+            "success", true,
+            "query", prefix != null ? prefix : "",
+            "data", suggestions
+        )).build());
+    }
+    
+    @GET
+    @Path("/search")
+    @PermitAll
+    @Operation(summary = "Search products")
+    @APIResponse(responseCode = "200", description = "Search results")
+    public Uni<Response> searchProducts(@QueryParam("q") String query) {
+        
+        LOG.infof("Searching products: %s", query);
+        
+        if (query == null || query.trim().isEmpty()) {
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("success", false, "message", "Search query required"))
+                    .build());
+        }
+        
+        return Product.searchByName(query.trim())
+            .map(products -> Response.ok(Map.of(
+                "success", true,
+                "data", products.stream().map(this::toListItem).toList(),
+                "query", query,
+                "count", products.size()
+            )).build());
+    }
+    
     @GET
     @Path("/categories")
     @PermitAll
@@ -140,17 +510,10 @@ public class ProductResource {
         return Uni.createFrom().item(() -> {
             LOG.info("Getting product categories");
             
-            // Mock categories for now - in full implementation would be from DB
-            List<Map<String, Object>> categories = List.of(
-                Map.of("id", "64f8b3c4d1234567890abcd1", "name", "Programming Languages", 
-                       "slug", "programming-languages", "color", "#3b82f6"),
-                Map.of("id", "64f8b3c4d1234567890abcd2", "name", "Cloud Platforms", 
-                       "slug", "cloud-platforms", "color", "#10b981"),
-                Map.of("id", "64f8b3c4d1234567890abcd3", "name", "DevOps Tools", 
-                       "slug", "devops-tools", "color", "#8b5cf6"),
-                Map.of("id", "64f8b3c4d1234567890abcd4", "name", "Tech Companies", 
-                       "slug", "tech-companies", "color", "#f59e0b")
-            );
+            // Served from the in-memory tree, depth-first with siblings in sort order
+            List<Map<String, Object>> categories = categoryTree.all().stream()
+                .map(ProductResource::toCategoryMap)
+                .toList();
             
             return Response.ok(Map.of(
                 "success", true,
@@ -159,6 +522,36 @@ public class ProductResource {
         });
     }
     
+    @POST
+    @Path("/categories")
+    @Operation(summary = "Create category, optionally under a parent (admin)")
+    @APIResponse(responseCode = "201", description = "Category created")
+    @APIResponse(responseCode = "403", description = "Admin role required")
+    @APIResponse(responseCode = "404", description = "Parent category not found")
+    public Uni<Response> createCategory(@HeaderParam("X-User-Roles") String roles, Category category) {
+        
+        if (!isAdmin(roles)) {
+            return Uni.createFrom().item(forbidden());
+        }
+        if (category == null || category.name == null || category.name.isBlank()
+                || category.slug == null || category.slug.isBlank()) {
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("success", false, "message", "Category name and slug required"))
+                    .build());
+        }
+        
+        return categoryService.create(category)
+            .map(created -> created == null
+                    ? Response.status(Response.Status.NOT_FOUND)
+                        .entity(Map.of("success", false, "message", "Parent category not found"))
+                        .build()
+                    : Response.status(Response.Status.CREATED)
+                        .entity(Map.of("success", true, "data", categoryTree.find(created.id.toString())
+                                .map(ProductResource::toCategoryMap)
+                                .orElseGet(() -> Map.of("id", created.id.toString(), "path", created.path))))
+                        .build());
+    }
+    
     @GET
     @Path("/featured")
     @PermitAll
@@ -166,17 +559,14 @@ public class ProductResource {
     @APIResponse(responseCode = "200", description = "Featured products retrieved")
     public Uni<Response> getFeaturedProducts() {
         
-        return Uni.createFrom().item(() -> {
-            LOG.info("Getting featured products");
-            
-            List<Product> featuredProducts = Product.findFeatured();
-            
-            return Response.ok(Map.of(
+        LOG.info("Getting featured products");
+        
+        return Product.findFeatured()
+            .map(featuredProducts -> Response.ok(Map.of(
                 "success", true,
-                "data", featuredProducts,
+                "data", featuredProducts.stream().map(this::toListItem).toList(),
                 "count", featuredProducts.size()
-            )).build();
-        });
+            )).build());
     }
     
     @GET
@@ -196,15 +586,108 @@ public class ProductResource {
         );
     }
     
+    private record ProductPage(List<Product> items, long total, CatalogFacetIndex.Matches matches) {}
+    
+    private static boolean isAdmin(String roles) {
+        return roles != null && Arrays.stream(roles.split(",")).map(String::trim).anyMatch("admin"::equals);
+    }
+    
+    private static Response forbidden() {
+        return Response.status(Response.Status.FORBIDDEN)
+                .entity(Map.of("success", false, "message", "Admin role required"))
+                .build();
+    }
+    
+    private static String validate(ProductFieldUpdate update) {
+        if (update == null || update.isEmpty()) {
+            return "At least one of price, comparePrice, stockQuantity, stockDelta required";
+        }
+        if (update.stockQuantity != null && update.stockDelta != null) {
+            return "stockQuantity and stockDelta are mutually exclusive";
+        }
+        if ((update.price != null && update.price.signum() < 0)
+                || (update.comparePrice != null && update.comparePrice.signum() < 0)) {
+            return "Prices must be zero or positive";
+        }
+        if (update.stockQuantity != null && update.stockQuantity < 0) {
+            return "stockQuantity must be zero or positive";
+        }
+        return null;
+    }
+    
+    private static double popularityOf(Product product) {
+        return product.popularityScore != null ? product.popularityScore
+                : Product.calculatePopularityScore(product.rating, product.reviewCount, product.isFeatured);
+    }
+    
+    private static Set<String> splitCsv(String value) {
+        Set<String> values = new LinkedHashSet<>();
+        if (value != null) {
+            Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(v -> !v.isEmpty())
+                .forEach(values::add);
+        }
+        return values;
+    }
+    
+    /**
+     * Keep only the requested fields; id is always returned so callers can correlate results
+     */
+    private static Map<String, Object> project(Map<String, Object> productMap, Set<String> fields) {
+        if (fields.isEmpty()) {
+            return productMap;
+        }
+        Map<String, Object> projected = new HashMap<>();
+        projected.put("id", productMap.get("id"));
+        for (String field : fields) {
+            if (productMap.containsKey(field)) {
+                projected.put(field, productMap.get(field));
+            }
+        }
+        return projected;
+    }
+    
+    private static Map<String, Object> toCategoryMap(CategoryTree.CategoryNode node) {
+        Map<String, Object> categoryMap = new LinkedHashMap<>();
+        categoryMap.put("id", node.id());
+        categoryMap.put("name", node.category().name);
+        categoryMap.put("slug", node.category().slug);
+        categoryMap.put("color", node.category().color);
+        categoryMap.put("description", node.category().description);
+        categoryMap.put("parentId", node.category().parentId);
+        categoryMap.put("path", node.path());
+        categoryMap.put("depth", node.depth());
+        categoryMap.put("childIds", node.childIds());
+        return categoryMap;
+    }
+    
+    /**
+     * List entries carry only the card rendition of each image
+     * Falls back to the original images until the variants have been generated
+     */
+    private Map<String, Object> toListItem(Product product) {
+        Map<String, Object> productMap = enrichProductWithPopularityScore(product);
+        productMap.remove("imageVariants");
+        if (product.imageVariants != null && !product.imageVariants.isEmpty()) {
+            productMap.put("images", product.imageVariants.stream()
+                    .map(variant -> variant.card.url)
+                    .toList());
+            Product.ImageRef primary = product.imageVariants.get(0).card;
+            if (primary.width != null) {
+                productMap.put("imageWidth", primary.width);
+                productMap.put("imageHeight", primary.height);
+            }
+        }
+        return productMap;
+    }
+    
     /**
      * Enrich product with popularity score using same algorithm as Recommendation Service
      */
     private Map<String, Object> enrichProductWithPopularityScore(Product product) {
-        // Same algorithm as Recommendation Service: rating * reviewCount + featuredBonus
-        double baseScore = (product.rating != null ? product.rating.doubleValue() : 0.0) * 
-                          (product.reviewCount != null ? product.reviewCount : 0);
-        double featuredBonus = (product.isFeatured != null && product.isFeatured) ? 100.0 : 0.0;
-        double popularityScore = baseScore + featuredBonus;
+        // Stored on write; computed here only for documents that predate the field
+        double popularityScore = popularityOf(product);
         
         // Convert Product entity to Map and add popularityScore
         Map<String, Object> productMap = new HashMap<>();
@@ -219,6 +702,7 @@ public class ProductResource {
         productMap.put("categoryId", product.categoryId);
         productMap.put("tags", product.tags != null ? product.tags : List.of());
         productMap.put("images", product.images != null ? product.images : List.of());
+        productMap.put("imageVariants", product.imageVariants != null ? product.imageVariants : List.of());
         productMap.put("isActive", product.isActive);
         productMap.put("isFeatured", product.isFeatured);
         productMap.put("stockQuantity", product.stockQuantity);
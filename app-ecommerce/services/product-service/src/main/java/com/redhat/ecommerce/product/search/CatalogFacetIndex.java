@@ -0,0 +1,274 @@
+package com.redhat.ecommerce.product.search;
+
+import com.redhat.ecommerce.product.event.ProductChangedEvent;
+import com.redhat.ecommerce.product.event.ProductFieldsChangedEvent;
+import com.redhat.ecommerce.product.model.Product;
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.roaringbitmap.RoaringBitmap;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * In-memory facet index over the active catalog
+ * Every facet value maps to a compressed bitmap of product ordinals, so counting a facet
+ * for a result set is a single bitmap intersection instead of a pass over the products
+ */
+@ApplicationScoped
+public class CatalogFacetIndex {
+    
+    private static final Logger LOG = Logger.getLogger(CatalogFacetIndex.class);
+    
+    /** Upper bounds of the price buckets; the last bucket is open-ended */
+    private static final int[] PRICE_BOUNDS = {25, 50, 100, 250, 500};
+    
+    private static final Duration REBUILD_TIMEOUT = Duration.ofMinutes(2);
+    
+    @ConfigProperty(name = "product-service.facets.rebuild-delay", defaultValue = "PT2S")
+    Duration rebuildDelay;
+    
+    private final ScheduledExecutorService rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "facet-index-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    
+    void onStart(@Observes StartupEvent event) {
+        rebuilder.execute(this::rebuild);
+    }
+    
+    /**
+     * Writes are coalesced: a burst of changes triggers one rebuild after the configured delay
+     */
+    void onProductChanged(@Observes ProductChangedEvent event) {
+        scheduleRebuild();
+    }
+    
+    private void scheduleRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuilder.schedule(() -> {
+                rebuildPending.set(false);
+                rebuild();
+            }, rebuildDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Only the price range facet depends on these fields
+     */
+    void onProductFieldsChanged(@Observes ProductFieldsChangedEvent event) {
+        if (event.price != null) {
+            scheduleRebuild();
+        }
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        rebuilder.shutdownNow();
+    }
+    
+    /**
+     * Products in a result list; products missing from the index (too new) are ignored
+     */
+    public Matches matching(Collection<Product> products) {
+        Snapshot current = snapshot;
+        RoaringBitmap matches = new RoaringBitmap();
+        for (Product product : products) {
+            Integer ordinal = current.ordinals.get(product.id.toString());
+            if (ordinal != null) {
+                matches.add(ordinal);
+            }
+        }
+        return new Matches(current, matches);
+    }
+    
+    /**
+     * Products matching the simple listing filters, resolved entirely from the index
+     */
+    public Matches matching(boolean featuredOnly, Collection<String> categoryIds) {
+        Snapshot current = snapshot;
+        if (featuredOnly) {
+            return new Matches(current, current.featured);
+        } else if (categoryIds != null) {
+            RoaringBitmap matches = new RoaringBitmap();
+            for (String categoryId : categoryIds) {
+                RoaringBitmap category = current.categories.get(categoryId);
+                if (category != null) {
+                    matches.or(category);
+                }
+            }
+            return new Matches(current, matches);
+        }
+        return new Matches(current, current.all);
+    }
+    
+    /**
+     * Facet counts (category, brand, priceRange, tags) restricted to the given matches
+     * Counted against the snapshot the matches were resolved from, never a newer one
+     * Values with no matching products are omitted
+     */
+    public Map<String, Map<String, Integer>> facetCounts(Matches matches) {
+        Snapshot current = matches.snapshot;
+        Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+        facets.put("category", count(current.categories, matches.bitmap));
+        facets.put("brand", count(current.brands, matches.bitmap));
+        facets.put("priceRange", count(current.priceRanges, matches.bitmap));
+        facets.put("tags", count(current.tags, matches.bitmap));
+        return facets;
+    }
+    
+    private static Map<String, Integer> count(Map<String, RoaringBitmap> facet, RoaringBitmap matches) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        facet.forEach((value, bitmap) -> {
+            int count = RoaringBitmap.andCardinality(bitmap, matches);
+            if (count > 0) {
+                counts.put(value, count);
+            }
+        });
+        return counts;
+    }
+    
+    /**
+     * Runs on the rebuilder thread only and waits for the stream, so rebuilds never overlap
+     * and an older catalog read cannot replace a newer snapshot
+     */
+    void rebuild() {
+        long start = System.nanoTime();
+        long next = snapshot.generation + 1;
+        try {
+            Snapshot rebuilt = Product.streamActive()
+                .collect().in(Snapshot.Builder::new, Snapshot.Builder::add)
+                .map(builder -> builder.build(next))
+                .await().atMost(REBUILD_TIMEOUT);
+            snapshot = rebuilt;
+            LOG.infof("Facet index rebuilt with %d products in %d ms",
+                    rebuilt.ordinals.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            // Keep serving the previous snapshot
+            LOG.errorf("Facet index rebuild failed: %s", e.getMessage());
+        }
+    }
+    
+    static String priceRange(BigDecimal price) {
+        if (price == null) {
+            return "unknown";
+        }
+        int lower = 0;
+        for (int bound : PRICE_BOUNDS) {
+            if (price.compareTo(BigDecimal.valueOf(bound)) < 0) {
+                return lower + "-" + bound;
+            }
+            lower = bound;
+        }
+        return lower + "+";
+    }
+    
+    /**
+     * A result set resolved against one snapshot; facet counts and the generation come from that same snapshot
+     */
+    public static final class Matches {
+        
+        private final Snapshot snapshot;
+        private final RoaringBitmap bitmap;
+        
+        private Matches(Snapshot snapshot, RoaringBitmap bitmap) {
+            this.snapshot = snapshot;
+            this.bitmap = bitmap;
+        }
+        
+        /**
+         * Increases on every rebuild; facet counts can only change when it does
+         */
+        public long generation() {
+            return snapshot.generation;
+        }
+    }
+    
+    /**
+     * Immutable view of the index, swapped atomically on rebuild
+     */
+    private static final class Snapshot {
+        
+        static final Snapshot EMPTY = new Builder().build(0);
+        
+        final long generation;
+        final Map<String, Integer> ordinals;
+        final RoaringBitmap all;
+        final RoaringBitmap featured;
+        final Map<String, RoaringBitmap> categories;
+        final Map<String, RoaringBitmap> brands;
+        final Map<String, RoaringBitmap> priceRanges;
+        final Map<String, RoaringBitmap> tags;
+        
+        private Snapshot(Builder builder, long generation) {
+            this.generation = generation;
+            this.ordinals = builder.ordinals;
+            this.all = builder.all;
+            this.featured = builder.featured;
+            this.categories = builder.categories;
+            this.brands = builder.brands;
+            this.priceRanges = builder.priceRanges;
+            this.tags = builder.tags;
+        }
+        
+        static final class Builder {
+            final Map<String, Integer> ordinals = new HashMap<>();
+            final RoaringBitmap all = new RoaringBitmap();
+            final RoaringBitmap featured = new RoaringBitmap();
+            final Map<String, RoaringBitmap> categories = new HashMap<>();
+            final Map<String, RoaringBitmap> brands = new HashMap<>();
+            final Map<String, RoaringBitmap> priceRanges = new HashMap<>();
+            final Map<String, RoaringBitmap> tags = new HashMap<>();
+            
+            void add(Product product) {
+                int ordinal = ordinals.size();
+                ordinals.put(product.id.toString(), ordinal);
+                all.add(ordinal);
+                if (Boolean.TRUE.equals(product.isFeatured)) {
+                    featured.add(ordinal);
+                }
+                addValue(categories, product.categoryId, ordinal);
+                addValue(brands, product.brand, ordinal);
+                addValue(priceRanges, priceRange(product.price), ordinal);
+                List<String> productTags = product.tags != null ? product.tags : List.of();
+                for (String tag : productTags) {
+                    addValue(tags, tag, ordinal);
+                }
+            }
+            
+            private static void addValue(Map<String, RoaringBitmap> facet, String value, int ordinal) {
+                if (value != null && !value.isBlank()) {
+                    facet.computeIfAbsent(value, v -> new RoaringBitmap()).add(ordinal);
+                }
+            }
+            
+            Snapshot build(long generation) {
+                Stream.of(categories, brands, priceRanges, tags)
+                    .flatMap(facet -> facet.values().stream())
+                    .forEach(RoaringBitmap::runOptimize);
+                all.runOptimize();
+                featured.runOptimize();
+                return new Snapshot(this, generation);
+            }
+        }
+    }
+}
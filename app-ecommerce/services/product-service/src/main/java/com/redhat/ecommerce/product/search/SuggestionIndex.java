@@ -0,0 +1,393 @@
+package com.redhat.ecommerce.product.search;
+
+import com.redhat.ecommerce.product.event.ProductChangedEvent;
+import com.redhat.ecommerce.product.model.Product;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import org.bson.types.ObjectId;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Typeahead over product names, brands and tags
+ * Terms live in a ternary search trie where every node knows the best weight in its subtree,
+ * so the top K completions of a prefix are found best-first without visiting the whole subtree
+ */
+@ApplicationScoped
+public class SuggestionIndex {
+    
+    private static final Logger LOG = Logger.getLogger(SuggestionIndex.class);
+    
+    /** Product names are also reachable from the start of each of their first words */
+    private static final int MAX_NAME_WORDS = 6;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private Trie trie = new Trie();
+    
+    // Guarded by lock: for each reload still streaming the catalog, the changes made meanwhile,
+    // replayed onto its trie before it is swapped in
+    private final Map<Long, List<Consumer<Trie>>> reloading = new HashMap<>();
+    
+    private long reloadsStarted;
+    
+    private long reloadSwapped;
+    
+    void onStart(@Observes StartupEvent event) {
+        reload();
+    }
+    
+    /**
+     * Only the changed product is re-read and its terms replaced, the rest of the trie is untouched
+     * Bulk changes rebuild the whole trie off to the side and swap it in
+     */
+    void onProductChanged(@Observes ProductChangedEvent event) {
+        if (event.productId == null) {
+            reload();
+            return;
+        }
+        if (!ObjectId.isValid(event.productId)) {
+            return;
+        }
+        Product.<Product>findById(new ObjectId(event.productId))
+            .subscribe().with(
+                product -> {
+                    if (product != null && Boolean.TRUE.equals(product.isActive)) {
+                        index(product);
+                    } else {
+                        remove(event.productId);
+                    }
+                },
+                failure -> LOG.warnf("Could not refresh suggestions for %s: %s", event.productId, failure.getMessage()));
+    }
+    
+    /**
+     * Top completions for a prefix, best first
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        
+        lock.readLock().lock();
+        try {
+            Node prefixNode = find(trie.root, key, 0);
+            if (prefixNode == null) {
+                return List.of();
+            }
+            
+            List<Suggestion> results = new ArrayList<>(limit);
+            Set<Term> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            PriorityQueue<Candidate> queue = new PriorityQueue<>();
+            for (Term term : prefixNode.terms) {
+                queue.add(new Candidate(term.weight, null, term));
+            }
+            if (prefixNode.eq != null) {
+                queue.add(new Candidate(prefixNode.eq.maxWeight, prefixNode.eq, null));
+            }
+            
+            while (!queue.isEmpty() && results.size() < limit) {
+                Candidate candidate = queue.poll();
+                if (candidate.term != null) {
+                    // A term reachable through several keys is only reported once
+                    if (seen.add(candidate.term)) {
+                        results.add(new Suggestion(candidate.term.text, candidate.term.type, candidate.term.weight));
+                    }
+                    continue;
+                }
+                Node node = candidate.node;
+                for (Term term : node.terms) {
+                    queue.add(new Candidate(term.weight, null, term));
+                }
+                for (Node child : new Node[] {node.lo, node.eq, node.hi}) {
+                    if (child != null) {
+                        queue.add(new Candidate(child.maxWeight, child, null));
+                    }
+                }
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Builds a new trie off to the side; single-product changes that land while it loads are
+     * applied to the live trie and replayed onto the new one, so the swap does not lose them
+     * A reload that finishes after a newer one has been swapped in is discarded
+     */
+    public void reload() {
+        reload(Product.streamActive());
+    }
+    
+    /**
+     * Builds from the given catalog stream instead of querying MongoDB
+     */
+    void reload(Multi<Product> catalog) {
+        Trie fresh = new Trie();
+        long reload;
+        lock.writeLock().lock();
+        try {
+            reload = ++reloadsStarted;
+            reloading.put(reload, new ArrayList<>());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        catalog
+            .subscribe().with(
+                product -> fresh.add(product.id.toString(), termsOf(product), weightOf(product)),
+                failure -> {
+                    lock.writeLock().lock();
+                    try {
+                        reloading.remove(reload);
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                    LOG.errorf("Suggestion index load failed: %s", failure.getMessage());
+                },
+                () -> {
+                    lock.writeLock().lock();
+                    try {
+                        List<Consumer<Trie>> changes = reloading.remove(reload);
+                        if (reload < reloadSwapped) {
+                            return;
+                        }
+                        changes.forEach(change -> change.accept(fresh));
+                        trie = fresh;
+                        reloadSwapped = reload;
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                    LOG.infof("Suggestion index loaded with %d products", fresh.keysByProduct.size());
+                });
+    }
+    
+    public void index(Product product) {
+        String productId = product.id.toString();
+        Map<String, TermKey> entries = termsOf(product);
+        double weight = weightOf(product);
+        apply(target -> target.add(productId, entries, weight));
+    }
+    
+    public void remove(String productId) {
+        apply(target -> target.remove(productId));
+    }
+    
+    private void apply(Consumer<Trie> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(trie);
+            for (List<Consumer<Trie>> pending : reloading.values()) {
+                pending.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private static double weightOf(Product product) {
+        return 1.0 + (product.popularityScore != null ? product.popularityScore
+                : Product.calculatePopularityScore(product.rating, product.reviewCount, product.isFeatured));
+    }
+    
+    private static Map<String, TermKey> termsOf(Product product) {
+        Map<String, TermKey> entries = new HashMap<>();
+        if (product.name != null && !product.name.isBlank()) {
+            TermKey name = new TermKey(product.name.trim(), "product");
+            List<String> words = Arrays.asList(normalize(product.name).split(" "));
+            for (int i = 0; i < Math.min(words.size(), MAX_NAME_WORDS); i++) {
+                entries.putIfAbsent(String.join(" ", words.subList(i, words.size())), name);
+            }
+        }
+        if (product.brand != null && !product.brand.isBlank()) {
+            entries.putIfAbsent(normalize(product.brand), new TermKey(product.brand.trim(), "brand"));
+        }
+        if (product.tags != null) {
+            for (String tag : product.tags) {
+                if (tag != null && !tag.isBlank()) {
+                    entries.putIfAbsent(normalize(tag), new TermKey(tag.trim(), "tag"));
+                }
+            }
+        }
+        return entries;
+    }
+    
+    /**
+     * Add or withdraw one product's contribution to a term under a key,
+     * refreshing subtree maxima on the way back up and pruning emptied leaves
+     */
+    private static Node put(Node node, String key, int i, TermKey termKey, String productId, double weight, boolean add) {
+        char c = key.charAt(i);
+        if (node == null) {
+            if (!add) {
+                return null;
+            }
+            node = new Node(c);
+        }
+        
+        if (c < node.c) {
+            node.lo = put(node.lo, key, i, termKey, productId, weight, add);
+        } else if (c > node.c) {
+            node.hi = put(node.hi, key, i, termKey, productId, weight, add);
+        } else if (i < key.length() - 1) {
+            node.eq = put(node.eq, key, i + 1, termKey, productId, weight, add);
+        } else {
+            Term term = node.termFor(termKey);
+            if (add) {
+                if (term == null) {
+                    term = new Term(termKey);
+                    node.terms.add(term);
+                }
+                term.put(productId, weight);
+            } else if (term != null) {
+                term.remove(productId);
+                if (term.weights.isEmpty()) {
+                    node.terms.remove(term);
+                }
+            }
+        }
+        
+        if (node.terms.isEmpty() && node.lo == null && node.eq == null && node.hi == null) {
+            return null;
+        }
+        double best = 0;
+        for (Term term : node.terms) {
+            best = Math.max(best, term.weight);
+        }
+        node.maxWeight = Math.max(best, Math.max(maxOf(node.lo), Math.max(maxOf(node.eq), maxOf(node.hi))));
+        return node;
+    }
+    
+    private static Node find(Node node, String key, int i) {
+        while (node != null) {
+            char c = key.charAt(i);
+            if (c < node.c) {
+                node = node.lo;
+            } else if (c > node.c) {
+                node = node.hi;
+            } else if (i < key.length() - 1) {
+                node = node.eq;
+                i++;
+            } else {
+                return node;
+            }
+        }
+        return null;
+    }
+    
+    private static double maxOf(Node node) {
+        return node != null ? node.maxWeight : 0;
+    }
+    
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+    
+    public record Suggestion(String text, String type, double score) {}
+    
+    private record TermKey(String text, String type) {}
+    
+    /**
+     * The trie plus which keys each product contributed, so a product can be withdrawn exactly
+     */
+    private static final class Trie {
+        Node root;
+        final Map<String, Map<String, TermKey>> keysByProduct = new HashMap<>();
+        
+        void add(String productId, Map<String, TermKey> entries, double weight) {
+            remove(productId);
+            entries.forEach((key, termKey) -> root = put(root, key, 0, termKey, productId, weight, true));
+            keysByProduct.put(productId, entries);
+        }
+        
+        void remove(String productId) {
+            Map<String, TermKey> entries = keysByProduct.remove(productId);
+            if (entries != null) {
+                entries.forEach((key, termKey) -> root = put(root, key, 0, termKey, productId, 0, false));
+            }
+        }
+    }
+    
+    private static final class Node {
+        final char c;
+        Node lo, eq, hi;
+        // Usually zero or one; a tag and a product name can end on the same key
+        final List<Term> terms = new ArrayList<>(1);
+        double maxWeight;
+        
+        Node(char c) {
+            this.c = c;
+        }
+        
+        Term termFor(TermKey key) {
+            for (Term term : terms) {
+                if (term.type.equals(key.type()) && term.text.equalsIgnoreCase(key.text())) {
+                    return term;
+                }
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * A completion shared by every product that carries it; ranked by its most popular product
+     */
+    private static final class Term {
+        final String text;
+        final String type;
+        final Map<String, Double> weights = new HashMap<>();
+        double weight;
+        
+        Term(TermKey key) {
+            this.text = key.text();
+            this.type = key.type();
+        }
+        
+        /**
+         * Constant time unless the product holding the maximum lost weight, which needs a rescan
+         */
+        void put(String productId, double productWeight) {
+            Double previous = weights.put(productId, productWeight);
+            if (productWeight >= weight) {
+                weight = productWeight;
+            } else if (previous != null && previous >= weight) {
+                refreshWeight();
+            }
+        }
+        
+        void remove(String productId) {
+            Double removed = weights.remove(productId);
+            if (removed != null && removed >= weight) {
+                refreshWeight();
+            }
+        }
+        
+        private void refreshWeight() {
+            weight = weights.values().stream().mapToDouble(Double::doubleValue).max().orElse(0);
+        }
+    }
+    
+    private record Candidate(double priority, Node node, Term term) implements Comparable<Candidate> {
+        @Override
+        public int compareTo(Candidate other) {
+            return Double.compare(other.priority, priority);
+        }
+    }
+}
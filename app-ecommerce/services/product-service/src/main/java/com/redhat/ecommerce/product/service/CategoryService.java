@@ -0,0 +1,154 @@
+package com.redhat.ecommerce.product.service;
+
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.redhat.ecommerce.product.cache.CategoryTree;
+import com.redhat.ecommerce.product.model.Category;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import org.bson.types.ObjectId;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Write path for the category tree
+ * Materializes path and ancestorIds on every write and swaps in a rebuilt CategoryTree afterwards
+ */
+@ApplicationScoped
+public class CategoryService {
+    
+    private static final Logger LOG = Logger.getLogger(CategoryService.class);
+    
+    static final List<IndexModel> INDEXES = List.of(
+        new IndexModel(Indexes.ascending("slug"), new IndexOptions().unique(true)),
+        // Subtree queries by path prefix, e.g. ^/apparel/
+        new IndexModel(Indexes.ascending("path")),
+        new IndexModel(Indexes.ascending("parentId"))
+    );
+    
+    @Inject
+    CategoryTree categoryTree;
+    
+    void onStart(@Observes @Priority(2) StartupEvent event) {
+        Category.mongoCollection().createIndexes(INDEXES)
+            .onFailure().invoke(failure -> LOG.errorf("Failed to create category indexes: %s", failure.getMessage()))
+            .onFailure().recoverWithNull()
+            .chain(() -> seedIfEmpty())
+            .chain(() -> backfillPaths())
+            .chain(() -> categoryTree.reload())
+            .subscribe().with(
+                count -> LOG.infof("Category tree loaded with %d categories", count),
+                failure -> LOG.errorf("Failed to load category tree: %s", failure.getMessage()));
+    }
+    
+    /**
+     * Create a category under parentId (or as a root), emitting null when the parent does not exist
+     */
+    public Uni<Category> create(Category category) {
+        if (category.parentId != null && !ObjectId.isValid(category.parentId)) {
+            return Uni.createFrom().nullItem();
+        }
+        Uni<Category> parent = category.parentId == null
+                ? Uni.createFrom().nullItem()
+                : Category.<Category>findById(new ObjectId(category.parentId));
+        
+        return parent.chain(found -> {
+            if (category.parentId != null && found == null) {
+                return Uni.createFrom().nullItem();
+            }
+            Instant now = Instant.now();
+            category.id = null;
+            category.createdAt = now;
+            category.updatedAt = now;
+            materializePath(category, found);
+            return category.<Category>persist();
+        })
+        .onItem().ifNotNull().call(created -> categoryTree.reload())
+        .onItem().ifNotNull().invoke(created -> LOG.infof("Created category %s (%s)", created.id, created.path));
+    }
+    
+    private static void materializePath(Category category, Category parent) {
+        if (parent == null) {
+            category.ancestorIds = List.of();
+            category.path = "/" + category.slug;
+        } else {
+            List<String> ancestors = new ArrayList<>(parent.ancestorIds != null ? parent.ancestorIds : List.of());
+            ancestors.add(parent.id.toString());
+            category.ancestorIds = ancestors;
+            category.path = (parent.path != null ? parent.path : "/" + parent.slug) + "/" + category.slug;
+        }
+    }
+    
+    private Uni<Void> seedIfEmpty() {
+        return Category.count().chain(count -> {
+            if (count > 0) {
+                return Uni.createFrom().voidItem();
+            }
+            Instant now = Instant.now();
+            List<Category> defaults = Category.defaults();
+            defaults.forEach(category -> {
+                category.createdAt = now;
+                category.updatedAt = now;
+            });
+            LOG.infof("Seeding %d default categories", defaults.size());
+            return Category.persist(defaults);
+        });
+    }
+    
+    /**
+     * Categories loaded by the init scripts predate materialized paths (and colors); fill them in once
+     * Parents are processed before children so every parent already has its path
+     */
+    private Uni<Void> backfillPaths() {
+        return Category.<Category>listAll().chain(categories -> {
+            Map<String, Category> byId = categories.stream()
+                    .collect(Collectors.toMap(category -> category.id.toString(), Function.identity()));
+            Map<String, String> defaultColors = Category.defaults().stream()
+                    .collect(Collectors.toMap(category -> category.id.toString(), category -> category.color));
+            
+            Set<Category> changed = new LinkedHashSet<>();
+            for (Category category : categories) {
+                if (category.path == null) {
+                    changed.add(category);
+                }
+                if (category.color == null && defaultColors.containsKey(category.id.toString())) {
+                    category.color = defaultColors.get(category.id.toString());
+                    changed.add(category);
+                }
+            }
+            for (Category category : categories) {
+                backfill(category, byId, 0);
+            }
+            if (changed.isEmpty()) {
+                return Uni.createFrom().voidItem();
+            }
+            LOG.infof("Backfilled path on %d categories", changed.size());
+            return Category.update(changed);
+        });
+    }
+    
+    private static void backfill(Category category, Map<String, Category> byId, int depth) {
+        if (category.path != null) {
+            return;
+        }
+        Category parent = category.parentId != null ? byId.get(category.parentId) : null;
+        // depth bounds the walk if parentIds form a cycle
+        if (parent != null && depth < byId.size()) {
+            backfill(parent, byId, depth + 1);
+        }
+        materializePath(category, parent);
+    }
+}
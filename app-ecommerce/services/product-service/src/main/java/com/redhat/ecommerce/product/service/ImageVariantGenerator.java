@@ -0,0 +1,118 @@
+package com.redhat.ecommerce.product.service;
+
+import com.redhat.ecommerce.product.model.Product;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Derives thumbnail, card and detail renditions from product image URLs
+ * Replaces the update-*-images.js scripts: hosts that encode the size in the URL are rewritten,
+ * anything else goes through the configured resize template or is served as is
+ */
+@ApplicationScoped
+public class ImageVariantGenerator {
+    
+    // https://picsum.photos/id/1/800/600 and https://picsum.photos/800/600
+    private static final Pattern PICSUM = Pattern.compile("^(https?://picsum\\.photos/(?:id/\\d+/)?)(\\d+)(?:/(\\d+))?(.*)$");
+    
+    // https://via.placeholder.com/800x600/ED8B00/FFFFFF?text=...
+    private static final Pattern PLACEHOLDER = Pattern.compile("^(https?://via\\.placeholder\\.com/)(\\d+)(?:x(\\d+))?(.*)$");
+    
+    @ConfigProperty(name = "product-service.images.thumbnail-size", defaultValue = "200x150")
+    String thumbnailSize;
+    
+    @ConfigProperty(name = "product-service.images.card-size", defaultValue = "400x300")
+    String cardSize;
+    
+    @ConfigProperty(name = "product-service.images.detail-size", defaultValue = "800x600")
+    String detailSize;
+    
+    /** e.g. https://images.example.com/{width}x{height}/{url}; {url} is URL-encoded */
+    @ConfigProperty(name = "product-service.images.resize-url-template")
+    Optional<String> resizeUrlTemplate;
+    
+    private int[] thumbnail;
+    private int[] card;
+    private int[] detail;
+    
+    @PostConstruct
+    void init() {
+        thumbnail = parseSize(thumbnailSize);
+        card = parseSize(cardSize);
+        detail = parseSize(detailSize);
+    }
+    
+    public List<Product.ImageVariants> variantsOf(List<String> images) {
+        List<Product.ImageVariants> variants = new ArrayList<>();
+        if (images == null) {
+            return variants;
+        }
+        for (String image : images) {
+            if (image == null || image.isBlank()) {
+                continue;
+            }
+            Product.ImageVariants variant = new Product.ImageVariants();
+            variant.source = image;
+            variant.thumbnail = rendition(image, thumbnail);
+            variant.card = rendition(image, card);
+            variant.detail = rendition(image, detail);
+            variants.add(variant);
+        }
+        return variants;
+    }
+    
+    /**
+     * True when variants were derived from exactly these images, in this order
+     */
+    public static boolean isCurrent(List<String> images, List<Product.ImageVariants> variants) {
+        List<String> expected = images == null ? List.of()
+                : images.stream().filter(image -> image != null && !image.isBlank()).toList();
+        List<String> sources = variants == null ? List.of()
+                : variants.stream().map(variant -> variant.source).toList();
+        return Objects.equals(expected, sources);
+    }
+    
+    private Product.ImageRef rendition(String url, int[] size) {
+        int width = size[0];
+        int height = size[1];
+        
+        Matcher picsum = PICSUM.matcher(url);
+        if (picsum.matches()) {
+            return new Product.ImageRef(picsum.group(1) + width + "/" + height + picsum.group(4), width, height);
+        }
+        Matcher placeholder = PLACEHOLDER.matcher(url);
+        if (placeholder.matches()) {
+            return new Product.ImageRef(placeholder.group(1) + width + "x" + height + placeholder.group(4), width, height);
+        }
+        if (url.startsWith("data:")) {
+            // Inline (usually SVG) images scale on the client; there is nothing to resize
+            return new Product.ImageRef(url, null, null);
+        }
+        if (resizeUrlTemplate.isPresent()) {
+            String resized = resizeUrlTemplate.get()
+                    .replace("{width}", Integer.toString(width))
+                    .replace("{height}", Integer.toString(height))
+                    .replace("{url}", URLEncoder.encode(url, StandardCharsets.UTF_8));
+            return new Product.ImageRef(resized, width, height);
+        }
+        return new Product.ImageRef(url, null, null);
+    }
+    
+    private static int[] parseSize(String size) {
+        String[] parts = size.trim().toLowerCase().split("x");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Image size must look like 400x300: " + size);
+        }
+        return new int[] {Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())};
+    }
+}
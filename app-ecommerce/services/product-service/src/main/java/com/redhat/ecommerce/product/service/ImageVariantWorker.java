@@ -0,0 +1,185 @@
+package com.redhat.ecommerce.product.service;
+
+import com.redhat.ecommerce.product.cache.ProductCache;
+import com.redhat.ecommerce.product.event.ProductChangedEvent;
+import com.redhat.ecommerce.product.model.Product;
+import io.quarkus.runtime.StartupEvent;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps Product.imageVariants in step with Product.images
+ * Runs on its own bounded pool after the write has been acknowledged, so product writes never wait for it;
+ * when the queue is full the task is dropped and the next sweep catches up
+ */
+@ApplicationScoped
+public class ImageVariantWorker {
+    
+    private static final Logger LOG = Logger.getLogger(ImageVariantWorker.class);
+    
+    private static final Duration MONGO_TIMEOUT = Duration.ofSeconds(10);
+    
+    @Inject
+    ImageVariantGenerator generator;
+    
+    @Inject
+    ProductCache productCache;
+    
+    @ConfigProperty(name = "product-service.images.workers", defaultValue = "2")
+    int workers;
+    
+    @ConfigProperty(name = "product-service.images.queue-size", defaultValue = "500")
+    int queueSize;
+    
+    private final AtomicBoolean sweepQueued = new AtomicBoolean();
+    
+    private ThreadPoolExecutor pool;
+    
+    @PostConstruct
+    void init() {
+        AtomicInteger threads = new AtomicInteger();
+        pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+    
+    void onStart(@Observes StartupEvent event) {
+        scheduleSweep();
+    }
+    
+    void onProductChanged(@Observes ProductChangedEvent event) {
+        if (event.productId == null) {
+            scheduleSweep();
+        } else {
+            submit(() -> process(event.productId));
+        }
+    }
+    
+    private void scheduleSweep() {
+        if (sweepQueued.compareAndSet(false, true)) {
+            if (!submit(this::sweep)) {
+                sweepQueued.set(false);
+            }
+        }
+    }
+    
+    private boolean submit(Runnable task) {
+        try {
+            pool.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    LOG.warnf("Image variant task failed: %s", e.getMessage());
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Image variant queue full, leaving the product for the next sweep");
+            return false;
+        }
+    }
+    
+    private void process(String productId) {
+        if (!ObjectId.isValid(productId)) {
+            return;
+        }
+        Product product = Product.<Product>findById(new ObjectId(productId)).await().atMost(MONGO_TIMEOUT);
+        if (product != null) {
+            refresh(product);
+        }
+    }
+    
+    /**
+     * Every product whose variants were not derived from its current images, e.g. after a bulk import
+     * Compares the same way as ImageVariantGenerator.isCurrent: blank images never get variants, so they are
+     * left out here too, otherwise a product with one would be selected again on every sweep
+     */
+    private void sweep() {
+        sweepQueued.set(false);
+        Document nonBlankImages = new Document("$filter", new Document("input",
+                new Document("$ifNull", List.of("$images", List.of())))
+                .append("as", "image")
+                .append("cond", new Document("$and", List.of(
+                        // $and stops at the first false, so $trim only ever sees strings
+                        new Document("$eq", List.of(new Document("$type", "$$image"), "string")),
+                        new Document("$ne", List.of(new Document("$trim", new Document("input", "$$image")), ""))))));
+        Document stale = new Document("$expr", new Document("$ne", List.of(
+                nonBlankImages,
+                new Document("$ifNull", List.of("$imageVariants.source", List.of())))));
+        
+        int refreshed = 0;
+        for (Product product : Product.<Product>stream(stale).subscribe().asIterable()) {
+            if (refresh(product)) {
+                refreshed++;
+            }
+        }
+        if (refreshed > 0) {
+            LOG.infof("Generated image variants for %d products", refreshed);
+        }
+    }
+    
+    private boolean refresh(Product product) {
+        if (ImageVariantGenerator.isCurrent(product.images, product.imageVariants)) {
+            return false;
+        }
+        List<Product.ImageVariants> variants = generator.variantsOf(product.images);
+        
+        // Only applies if images did not change meanwhile; that newer write queues its own task
+        Document filter = new Document("_id", product.id).append("images", product.images);
+        Document update = new Document("$set", new Document("imageVariants", toDocuments(variants)))
+                .append("$inc", new Document("variantsRevision", 1L));
+        
+        long modified = Product.mongoCollection().updateOne(filter, update)
+                .await().atMost(MONGO_TIMEOUT)
+                .getModifiedCount();
+        if (modified > 0) {
+            // The cached copy has no (or outdated) variants; the revision changes its ETag but not the version
+            // clients send back in If-Match, so derived data never fails their next conditional write
+            productCache.invalidate(product.id.toString());
+            return true;
+        }
+        return false;
+    }
+    
+    private static List<Document> toDocuments(List<Product.ImageVariants> variants) {
+        List<Document> documents = new ArrayList<>(variants.size());
+        for (Product.ImageVariants variant : variants) {
+            documents.add(new Document("source", variant.source)
+                    .append("thumbnail", toDocument(variant.thumbnail))
+                    .append("card", toDocument(variant.card))
+                    .append("detail", toDocument(variant.detail)));
+        }
+        return documents;
+    }
+    
+    private static Document toDocument(Product.ImageRef image) {
+        return new Document("url", image.url)
+                .append("width", image.width)
+                .append("height", image.height);
+    }
+}
@@ -0,0 +1,57 @@
+package com.redhat.ecommerce.product.service;
+
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Batch variant of the import endpoint: loads a catalog file once at startup
+ * Replaces the one-document-at-a-time mongosh scripts for large catalog loads
+ */
+@ApplicationScoped
+public class ProductImportJob {
+    
+    private static final Logger LOG = Logger.getLogger(ProductImportJob.class);
+    
+    @Inject
+    ProductImportService importService;
+    
+    @ConfigProperty(name = "product-service.import.startup-file")
+    Optional<String> startupFile;
+    
+    void onStart(@Observes StartupEvent event) {
+        startupFile.map(Path::of).ifPresent(file -> Uni.createFrom()
+            .item(() -> run(file))
+            .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+            .subscribe().with(
+                report -> {
+                    if (report.completed) {
+                        LOG.infof("Startup import of %s finished: %d rows, %d failed", file, report.rows, report.failed);
+                    } else {
+                        LOG.errorf("Startup import of %s timed out with batches still writing", file);
+                    }
+                },
+                failure -> LOG.errorf("Startup import of %s failed: %s", file, failure.getMessage())));
+    }
+    
+    private ProductImportService.ImportReport run(Path file) {
+        ProductImportService.Format format = file.toString().toLowerCase().endsWith(".csv")
+                ? ProductImportService.Format.CSV
+                : ProductImportService.Format.NDJSON;
+        try (InputStream input = Files.newInputStream(file)) {
+            return importService.importProducts(input, format);
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+}
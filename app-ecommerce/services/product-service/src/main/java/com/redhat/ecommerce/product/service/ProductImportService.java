@@ -0,0 +1,480 @@
+package com.redhat.ecommerce.product.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.redhat.ecommerce.product.event.ProductChangedEvent;
+import com.redhat.ecommerce.product.model.Product;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk upsert of products from NDJSON or CSV
+ * Rows are read as a stream, validated in parallel per batch and written with unordered bulkWrite,
+ * keyed on sku; a few batches are kept in flight so parsing overlaps with MongoDB writes
+ */
+@ApplicationScoped
+public class ProductImportService {
+    
+    private static final Logger LOG = Logger.getLogger(ProductImportService.class);
+    
+    private static final String COLLECTION = "products";
+    
+    /** Separator for list columns (tags, images) in CSV */
+    private static final String CSV_LIST_SEPARATOR = "\\|";
+    
+    private static final Duration COMPLETION_TIMEOUT = Duration.ofMinutes(5);
+    
+    public enum Format {
+        NDJSON, CSV
+    }
+    
+    @Inject
+    ObjectMapper objectMapper;
+    
+    @Inject
+    Event<ProductChangedEvent> productChanged;
+    
+    @ConfigProperty(name = "product-service.import.batch-size", defaultValue = "1000")
+    int batchSize;
+    
+    @ConfigProperty(name = "product-service.import.max-in-flight-batches", defaultValue = "4")
+    int maxInFlightBatches;
+    
+    @ConfigProperty(name = "product-service.import.max-reported-errors", defaultValue = "1000")
+    int maxReportedErrors;
+    
+    /**
+     * Import a whole stream; blocks the calling (worker) thread until every batch is acknowledged
+     */
+    public ImportReport importProducts(InputStream input, Format format) throws IOException {
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport();
+        ReactiveMongoCollection<Document> collection = Product.mongoDatabase().getCollection(COLLECTION);
+        Semaphore inFlight = new Semaphore(maxInFlightBatches);
+        BatchOutcome outcome = new BatchOutcome();
+        boolean completed = false;
+        
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            RecordReader records = new RecordReader(reader, format == Format.CSV);
+            String[] header = null;
+            if (format == Format.CSV) {
+                String headerLine = records.next();
+                if (headerLine == null) {
+                    return report.finish(start);
+                }
+                header = parseCsvLine(headerLine).toArray(String[]::new);
+            }
+            
+            List<RawRow> batch = new ArrayList<>(batchSize);
+            while (true) {
+                int lineNumber = records.line + 1;
+                String text = records.next();
+                if (text == null) {
+                    break;
+                }
+                if (text.isBlank()) {
+                    continue;
+                }
+                batch.add(new RawRow(lineNumber, text));
+                if (batch.size() >= batchSize) {
+                    submit(batch, format, header, collection, inFlight, outcome);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(batch, format, header, collection, inFlight, outcome);
+            }
+        } finally {
+            completed = awaitAll(inFlight);
+        }
+        
+        report.completed = completed;
+        report.rows = outcome.rows.get();
+        report.inserted = outcome.inserted.get();
+        report.updated = outcome.updated.get();
+        report.failed = outcome.failed.get();
+        report.errors = new ArrayList<>(outcome.errors);
+        
+        if (report.inserted + report.updated > 0) {
+            productChanged.fire(new ProductChangedEvent(null, ProductChangedEvent.ChangeType.BULK_IMPORTED));
+        }
+        
+        report.finish(start);
+        if (!completed) {
+            LOG.errorf("Import timed out after %d ms with batches still writing; counts so far: %d inserted, %d updated, %d failed",
+                    report.durationMs, report.inserted, report.updated, report.failed);
+            return report;
+        }
+        LOG.infof("Imported %d rows in %d ms (%d inserted, %d updated, %d failed)",
+                report.rows, report.durationMs, report.inserted, report.updated, report.failed);
+        return report;
+    }
+    
+    private void submit(List<RawRow> batch, Format format, String[] header,
+                        ReactiveMongoCollection<Document> collection, Semaphore inFlight, BatchOutcome outcome) {
+        // Parsing and validation are CPU-only, so a batch is spread across cores
+        List<ParsedRow> parsed = batch.parallelStream()
+                .map(row -> parse(row, format, header))
+                .toList();
+        
+        List<WriteModel<Document>> writes = new ArrayList<>(parsed.size());
+        List<ParsedRow> written = new ArrayList<>(parsed.size());
+        Instant now = Instant.now();
+        for (ParsedRow row : parsed) {
+            outcome.rows.incrementAndGet();
+            if (row.error != null) {
+                outcome.fail(row.line, row.sku, row.error, maxReportedErrors);
+                continue;
+            }
+            writes.add(toUpsert(row.product, now));
+            written.add(row);
+        }
+        if (writes.isEmpty()) {
+            return;
+        }
+        
+        inFlight.acquireUninterruptibly();
+        collection.bulkWrite(writes, new BulkWriteOptions().ordered(false))
+            .subscribe().with(
+                result -> {
+                    outcome.record(result);
+                    inFlight.release();
+                },
+                failure -> {
+                    if (failure instanceof MongoBulkWriteException bulkFailure) {
+                        // Unordered: everything except the reported rows was applied
+                        outcome.record(bulkFailure.getWriteResult());
+                        for (BulkWriteError error : bulkFailure.getWriteErrors()) {
+                            ParsedRow row = written.get(error.getIndex());
+                            // Two upserts of a new sku raced (same sku twice in the file, or another import)
+                            String message = ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY
+                                    ? "Duplicate sku " + row.sku + ": written concurrently by another row or import, not applied"
+                                    : error.getMessage();
+                            outcome.fail(row.line, row.sku, message, maxReportedErrors);
+                        }
+                    } else {
+                        for (ParsedRow row : written) {
+                            outcome.fail(row.line, row.sku, failure.getMessage(), maxReportedErrors);
+                        }
+                    }
+                    inFlight.release();
+                });
+    }
+    
+    /**
+     * False when batches were still writing at the timeout (or the wait was interrupted), so the counts are partial
+     */
+    private boolean awaitAll(Semaphore inFlight) {
+        try {
+            if (!inFlight.tryAcquire(maxInFlightBatches, COMPLETION_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            inFlight.release(maxInFlightBatches);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    private ParsedRow parse(RawRow row, Format format, String[] header) {
+        Product product;
+        try {
+            product = format == Format.NDJSON
+                    ? objectMapper.readValue(row.text, Product.class)
+                    : fromCsv(header, parseCsvLine(row.text));
+        } catch (Exception e) {
+            return ParsedRow.invalid(row.line, null, "Unparseable row: " + e.getMessage());
+        }
+        
+        String error = validate(product);
+        if (error != null) {
+            return ParsedRow.invalid(row.line, product.sku, error);
+        }
+        product.refreshPopularityScore();
+        return new ParsedRow(row.line, product.sku, product, null);
+    }
+    
+    static String validate(Product product) {
+        if (product.sku == null || product.sku.isBlank()) {
+            return "sku is required";
+        }
+        if (product.name == null || product.name.isBlank()) {
+            return "name is required";
+        }
+        if (product.price == null || product.price.signum() < 0) {
+            return "price must be zero or positive";
+        }
+        if (product.stockQuantity != null && product.stockQuantity < 0) {
+            return "stockQuantity must be zero or positive";
+        }
+        if (product.rating != null && (product.rating.signum() < 0 || product.rating.compareTo(BigDecimal.valueOf(5)) > 0)) {
+            return "rating must be between 0 and 5";
+        }
+        return null;
+    }
+    
+    /**
+     * Upsert by sku; createdAt is only set when the product is new, and so is a slug derived from the name,
+     * so a row without a slug never renames an existing product's slug
+     */
+    private WriteModel<Document> toUpsert(Product product, Instant now) {
+        Document fields = new Document()
+                .append("name", product.name)
+                .append("description", product.description)
+                .append("shortDescription", product.shortDescription)
+                .append("price", product.price)
+                .append("comparePrice", product.comparePrice)
+                .append("categoryId", product.categoryId)
+                .append("tags", product.tags != null ? product.tags : List.of())
+                .append("images", product.images != null ? product.images : List.of())
+                .append("isActive", product.isActive != null ? product.isActive : Boolean.TRUE)
+                .append("isFeatured", product.isFeatured != null ? product.isFeatured : Boolean.FALSE)
+                .append("stockQuantity", product.stockQuantity)
+                .append("brand", product.brand)
+                .append("rating", product.rating)
+                .append("reviewCount", product.reviewCount)
+                .append("popularityScore", product.popularityScore)
+                .append("updatedAt", now);
+        if (product.metadata != null) {
+            fields.append("metadata", new Document(objectMapper.convertValue(product.metadata, Map.class)));
+        }
+        Document onInsert = new Document("createdAt", now);
+        if (product.slug != null) {
+            fields.append("slug", product.slug);
+        } else {
+            onInsert.append("slug", slugify(product.name));
+        }
+        
+        return new UpdateOneModel<>(
+                new Document("sku", product.sku),
+                new Document("$set", fields)
+                        .append("$setOnInsert", onInsert)
+                        .append("$inc", new Document("version", 1L)),
+                new UpdateOptions().upsert(true));
+    }
+    
+    private static Product fromCsv(String[] header, List<String> values) {
+        if (header == null) {
+            throw new IllegalArgumentException("CSV header row required");
+        }
+        Product product = new Product();
+        for (int i = 0; i < header.length && i < values.size(); i++) {
+            String value = values.get(i).trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            switch (header[i].trim()) {
+                case "name" -> product.name = value;
+                case "description" -> product.description = value;
+                case "shortDescription" -> product.shortDescription = value;
+                case "slug" -> product.slug = value;
+                case "sku" -> product.sku = value;
+                case "price" -> product.price = new BigDecimal(value);
+                case "comparePrice" -> product.comparePrice = new BigDecimal(value);
+                case "categoryId" -> product.categoryId = value;
+                case "tags" -> product.tags = splitList(value);
+                case "images" -> product.images = splitList(value);
+                case "isActive" -> product.isActive = parseBoolean("isActive", value);
+                case "isFeatured" -> product.isFeatured = parseBoolean("isFeatured", value);
+                case "stockQuantity" -> product.stockQuantity = Integer.parseInt(value);
+                case "brand" -> product.brand = value;
+                case "rating" -> product.rating = new BigDecimal(value);
+                case "reviewCount" -> product.reviewCount = Integer.parseInt(value);
+                default -> { } // Unknown columns are ignored
+            }
+        }
+        return product;
+    }
+    
+    /**
+     * Strict: anything but true or false fails the row, instead of silently becoming false
+     */
+    private static boolean parseBoolean(String column, String value) {
+        if (value.equalsIgnoreCase("true")) {
+            return true;
+        }
+        if (value.equalsIgnoreCase("false")) {
+            return false;
+        }
+        throw new IllegalArgumentException(column + " must be true or false, was '" + value + "'");
+    }
+    
+    private static List<String> splitList(String value) {
+        return Arrays.stream(value.split(CSV_LIST_SEPARATOR))
+                .map(String::trim)
+                .filter(item -> !item.isEmpty())
+                .toList();
+    }
+    
+    /**
+     * RFC 4180 style: commas separate fields, double quotes wrap fields and "" escapes a quote;
+     * a quoted field may contain line breaks, see RecordReader
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+    
+    private static String slugify(String name) {
+        return name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-").replaceAll("(^-|-$)", "");
+    }
+    
+    /**
+     * One row at a time; a CSV row goes on over the next lines while one of its quoted fields is still open
+     */
+    static final class RecordReader {
+        private final BufferedReader reader;
+        private final boolean csv;
+        // Physical lines read so far
+        int line;
+        
+        RecordReader(BufferedReader reader, boolean csv) {
+            this.reader = reader;
+            this.csv = csv;
+        }
+        
+        /**
+         * The next row, null at the end of the input
+         */
+        String next() throws IOException {
+            String text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+            // "" inside a quoted field counts twice, so an odd count means a field is still open
+            int quotes = csv ? countQuotes(text) : 0;
+            if (quotes % 2 == 0) {
+                return text;
+            }
+            StringBuilder row = new StringBuilder(text);
+            String more;
+            while (quotes % 2 != 0 && (more = reader.readLine()) != null) {
+                line++;
+                row.append('\n').append(more);
+                quotes += countQuotes(more);
+            }
+            return row.toString();
+        }
+        
+        private static int countQuotes(String text) {
+            int count = 0;
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == '"') {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+    
+    private record RawRow(int line, String text) {}
+    
+    private record ParsedRow(int line, String sku, Product product, String error) {
+        static ParsedRow invalid(int line, String sku, String error) {
+            return new ParsedRow(line, sku, null, error);
+        }
+    }
+    
+    /**
+     * Counters shared by the batches still in flight
+     */
+    private static final class BatchOutcome {
+        final AtomicLong rows = new AtomicLong();
+        final AtomicLong inserted = new AtomicLong();
+        final AtomicLong updated = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicInteger reportedErrors = new AtomicInteger();
+        final ConcurrentLinkedQueue<RowError> errors = new ConcurrentLinkedQueue<>();
+        
+        void record(BulkWriteResult result) {
+            inserted.addAndGet(result.getUpserts().size());
+            updated.addAndGet(result.getMatchedCount());
+        }
+        
+        void fail(int line, String sku, String message, int maxReported) {
+            failed.incrementAndGet();
+            if (reportedErrors.incrementAndGet() <= maxReported) {
+                errors.add(new RowError(line, sku, message));
+            }
+        }
+    }
+    
+    public record RowError(int line, String sku, String message) {}
+    
+    public static class ImportReport {
+        // False when the import timed out with batches still writing; the counts below are then partial
+        public boolean completed = true;
+        public long rows;
+        public long inserted;
+        public long updated;
+        public long failed;
+        public long durationMs;
+        public double rowsPerSecond;
+        public List<RowError> errors = List.of();
+        
+        ImportReport finish(long startNanos) {
+            durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            rowsPerSecond = durationMs > 0 ? rows * 1000.0 / durationMs : rows;
+            return this;
+        }
+    }
+}
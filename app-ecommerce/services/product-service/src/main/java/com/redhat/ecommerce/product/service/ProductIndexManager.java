@@ -0,0 +1,196 @@
+package com.redhat.ecommerce.product.service;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.redhat.ecommerce.product.model.Product;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Declares the indexes behind every Product finder and creates them at startup
+ * ProductIndexManagerTest fails the build when a finder falls back to a collection scan;
+ * the startup check is an optional diagnostic against a live database
+ */
+@ApplicationScoped
+public class ProductIndexManager {
+    
+    private static final Logger LOG = Logger.getLogger(ProductIndexManager.class);
+    
+    private static final String COLLECTION = "products";
+    
+    private static final String SKU_INDEX = "sku_1";
+    
+    // Replaced by the same keys plus _id, which makes the popularity order total
+    private static final List<String> SUPERSEDED_INDEXES = List.of(
+        "isActive_1_popularityScore_-1",
+        "isFeatured_1_popularityScore_-1",
+        "categoryId_1_isActive_1_popularityScore_-1");
+    
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(30);
+    
+    // Sample values for the explained queries; ProductIndexManagerTest seeds a product that matches them
+    static final String EXPLAIN_SLUG = "explain";
+    static final List<String> EXPLAIN_CATEGORIES = List.of("explain", "explain-child");
+    
+    /**
+     * One index per finder shape; partial indexes only hold the active/featured subset they serve
+     */
+    static final List<IndexModel> INDEXES = List.of(
+        // findActive, findActiveByPopularity(false, null)
+        new IndexModel(
+            Indexes.compoundIndex(Indexes.ascending("isActive"), Indexes.descending("popularityScore", "_id"))),
+        // findFeatured, findActiveByPopularity(true, null)
+        new IndexModel(
+            Indexes.compoundIndex(Indexes.ascending("isFeatured"), Indexes.descending("popularityScore", "_id")),
+            new IndexOptions()
+                .partialFilterExpression(Filters.and(Filters.eq("isFeatured", true), Filters.eq("isActive", true)))),
+        // findByCategory, findActiveByPopularity(false, categoryIds); a subtree $in merges the per-category ranges
+        new IndexModel(
+            Indexes.compoundIndex(Indexes.ascending("categoryId", "isActive"), Indexes.descending("popularityScore", "_id"))),
+        // Bulk import upserts, keyed on sku; unique so racing upserts of one sku fail instead of inserting twice
+        // Partial on string skus, since products created through the API may have none
+        new IndexModel(
+            Indexes.ascending("sku"),
+            new IndexOptions()
+                .unique(true)
+                .partialFilterExpression(Filters.type("sku", BsonType.STRING))),
+        // findBySlug
+        new IndexModel(
+            Indexes.ascending("slug"),
+            new IndexOptions()
+                .partialFilterExpression(Filters.eq("isActive", true)))
+    );
+    
+    @ConfigProperty(name = "product-service.indexes.verify-query-plans", defaultValue = "false")
+    boolean verifyQueryPlans;
+    
+    @ConfigProperty(name = "product-service.indexes.fail-on-collection-scan", defaultValue = "false")
+    boolean failOnCollectionScan;
+    
+    /**
+     * Runs before the other startup observers so backfills and index rebuilds already use the indexes
+     * Blocking is fine here: startup observers run on the main thread, not the event loop
+     */
+    void onStart(@Observes @Priority(1) StartupEvent event) {
+        try {
+            dropLegacySkuIndex();
+            List<String> created = Product.mongoCollection().createIndexes(INDEXES)
+                    .await().atMost(STARTUP_TIMEOUT);
+            LOG.infof("Product indexes ensured: %s", created);
+            dropSupersededIndexes();
+        } catch (Exception e) {
+            // Finders still work without indexes, they just scan
+            LOG.errorf("Failed to create product indexes: %s", e.getMessage());
+            return;
+        }
+        
+        if (verifyQueryPlans) {
+            List<String> scanning = findersUsingCollectionScan().await().atMost(STARTUP_TIMEOUT);
+            if (scanning.isEmpty()) {
+                LOG.info("All product finders are served by an index");
+            } else if (failOnCollectionScan) {
+                throw new IllegalStateException("Product finders fall back to COLLSCAN: " + scanning);
+            } else {
+                LOG.warnf("Product finders fall back to COLLSCAN: %s", scanning);
+            }
+        }
+    }
+    
+    /**
+     * sku_1 used to be a plain index; the same name with unique/partial options would conflict with it
+     */
+    private static void dropLegacySkuIndex() {
+        List<Document> indexes = Product.mongoCollection().listIndexes().collect().asList()
+                .await().atMost(STARTUP_TIMEOUT);
+        for (Document index : indexes) {
+            if (SKU_INDEX.equals(index.getString("name")) && !Boolean.TRUE.equals(index.getBoolean("unique"))) {
+                Product.mongoCollection().dropIndex(SKU_INDEX).await().atMost(STARTUP_TIMEOUT);
+                LOG.infof("Dropped non-unique %s index", SKU_INDEX);
+            }
+        }
+    }
+    
+    /**
+     * After the replacements exist, so the popularity finders are never left without an index
+     */
+    private static void dropSupersededIndexes() {
+        List<Document> indexes = Product.mongoCollection().listIndexes().collect().asList()
+                .await().atMost(STARTUP_TIMEOUT);
+        for (Document index : indexes) {
+            String name = index.getString("name");
+            if (SUPERSEDED_INDEXES.contains(name)) {
+                Product.mongoCollection().dropIndex(name).await().atMost(STARTUP_TIMEOUT);
+                LOG.infof("Dropped superseded %s index", name);
+            }
+        }
+    }
+    
+    /**
+     * Explain each finder's query, built from the same Product filters, and report those whose winning plan
+     * scans the collection
+     */
+    public Uni<List<String>> findersUsingCollectionScan() {
+        List<FinderQuery> finders = List.of(
+            new FinderQuery("findActive", Product.activeFilter(), null),
+            new FinderQuery("findFeatured", Product.featuredFilter(), null),
+            new FinderQuery("findByCategory", Product.categoryFilter(EXPLAIN_CATEGORIES), null),
+            new FinderQuery("findBySlug", Product.slugFilter(EXPLAIN_SLUG), null),
+            new FinderQuery("findActiveByPopularity", Product.activeFilter(), Product.BY_POPULARITY),
+            new FinderQuery("findActiveByPopularity(featured)", Product.featuredFilter(), Product.BY_POPULARITY),
+            new FinderQuery("findActiveByPopularity(category)", Product.categoryFilter(EXPLAIN_CATEGORIES),
+                    Product.BY_POPULARITY),
+            new FinderQuery("findActiveAfter", Product.activeAfterFilter(new ObjectId()), Product.BY_ID)
+        );
+        
+        return Multi.createFrom().iterable(finders)
+            .onItem().transformToUniAndConcatenate(finder -> explain(finder)
+                .map(plan -> Map.entry(finder.name,
+                        containsStage(plan.get("queryPlanner", Document.class).get("winningPlan"), "COLLSCAN"))))
+            .select().where(Map.Entry::getValue)
+            .map(Map.Entry::getKey)
+            .collect().asList();
+    }
+    
+    private static Uni<Document> explain(FinderQuery finder) {
+        Document find = new Document("find", COLLECTION).append("filter", finder.filter);
+        if (finder.sort != null) {
+            find.append("sort", finder.sort);
+        }
+        return Product.mongoDatabase()
+            .runCommand(new Document("explain", find).append("verbosity", "queryPlanner"));
+    }
+    
+    /**
+     * Plans are nested (FETCH -> IXSCAN, SORT -> COLLSCAN, ...), and the layout differs between
+     * the classic and slot-based engines, so search the whole tree
+     */
+    private static boolean containsStage(Object node, String stage) {
+        if (node instanceof Document document) {
+            if (stage.equals(document.get("stage"))) {
+                return true;
+            }
+            return document.values().stream().anyMatch(value -> containsStage(value, stage));
+        }
+        if (node instanceof List<?> list) {
+            return list.stream().anyMatch(value -> containsStage(value, stage));
+        }
+        return false;
+    }
+    
+    private record FinderQuery(String name, Document filter, Document sort) {}
+}
@@ -0,0 +1,179 @@
+package com.redhat.ecommerce.product.service;
+
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReturnDocument;
+import com.redhat.ecommerce.product.dto.ProductFieldUpdate;
+import com.redhat.ecommerce.product.event.ProductChangedEvent;
+import com.redhat.ecommerce.product.event.ProductFieldsChangedEvent;
+import com.redhat.ecommerce.product.model.Product;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Write path for the product catalog
+ * Keeps derived fields such as popularityScore in sync on every write
+ */
+@ApplicationScoped
+public class ProductService {
+    
+    private static final Logger LOG = Logger.getLogger(ProductService.class);
+    
+    @Inject
+    Event<ProductChangedEvent> productChanged;
+    
+    @Inject
+    Event<ProductFieldsChangedEvent> productFieldsChanged;
+    
+    void onStart(@Observes StartupEvent event) {
+        backfillPopularityScores().subscribe().with(
+            updated -> {
+                if (updated > 0) {
+                    LOG.infof("Backfilled popularity score on %d products", updated);
+                }
+            },
+            // Listing falls back to computing the score per product until the next restart
+            failure -> LOG.errorf("Failed to backfill popularity scores: %s", failure.getMessage()));
+    }
+    
+    public Uni<Product> create(Product product) {
+        Instant now = Instant.now();
+        product.id = null;
+        product.createdAt = now;
+        product.updatedAt = now;
+        product.version = 1L;
+        product.variantsRevision = null;
+        product.refreshPopularityScore();
+        
+        return product.<Product>persist().invoke(created -> {
+            productChanged.fire(new ProductChangedEvent(created.id.toString(), ProductChangedEvent.ChangeType.CREATED));
+            LOG.infof("Created product %s (%s)", created.id, created.name);
+        });
+    }
+    
+    /**
+     * Replace a product document, emitting null when it does not exist
+     */
+    public Uni<Product> update(String id, Product changes) {
+        if (!ObjectId.isValid(id)) {
+            return Uni.createFrom().nullItem();
+        }
+        return Product.<Product>findById(new ObjectId(id))
+            .onItem().ifNotNull().transformToUni(existing -> {
+                changes.id = existing.id;
+                changes.createdAt = existing.createdAt;
+                changes.updatedAt = Instant.now();
+                changes.version = (existing.version != null ? existing.version : 0L) + 1;
+                // Server-maintained, whatever the client sent back
+                changes.variantsRevision = existing.variantsRevision;
+                changes.refreshPopularityScore();
+                return changes.<Product>update();
+            })
+            .onItem().ifNotNull().invoke(updated -> {
+                productChanged.fire(new ProductChangedEvent(id, ProductChangedEvent.ChangeType.UPDATED));
+                LOG.infof("Updated product %s (%s)", id, updated.name);
+            });
+    }
+    
+    /**
+     * Write price and stock with a single findOneAndUpdate ($set / $inc) instead of replacing the document
+     * The filter carries the preconditions (expected version, enough stock), so the check and the write are atomic
+     */
+    public Uni<FieldUpdateResult> updateFields(String id, ProductFieldUpdate update) {
+        if (!ObjectId.isValid(id)) {
+            return Uni.createFrom().item(FieldUpdateResult.of(FieldUpdateStatus.NOT_FOUND));
+        }
+        ObjectId objectId = new ObjectId(id);
+        Instant now = Instant.now();
+        
+        Document filter = new Document("_id", objectId);
+        if (update.expectedVersion != null) {
+            // Documents that predate versioning count as version 0
+            filter.append("version", update.expectedVersion == 0
+                    ? new Document("$in", Arrays.asList(0L, null))
+                    : update.expectedVersion);
+        }
+        if (update.stockDelta != null && update.stockDelta < 0) {
+            filter.append("stockQuantity", new Document("$gte", -update.stockDelta));
+        }
+        
+        Document set = new Document("updatedAt", now);
+        if (update.price != null) {
+            set.append("price", update.price);
+        }
+        if (update.comparePrice != null) {
+            set.append("comparePrice", update.comparePrice);
+        }
+        if (update.stockQuantity != null) {
+            set.append("stockQuantity", update.stockQuantity);
+        }
+        Document inc = new Document("version", 1L);
+        if (update.stockDelta != null) {
+            inc.append("stockQuantity", update.stockDelta);
+        }
+        
+        FindOneAndUpdateOptions options = new FindOneAndUpdateOptions()
+                .returnDocument(ReturnDocument.AFTER)
+                .projection(Projections.include("price", "comparePrice", "stockQuantity", "version", "updatedAt"));
+        
+        return Product.mongoCollection()
+            .findOneAndUpdate(filter, new Document("$set", set).append("$inc", inc), options)
+            .chain(updated -> {
+                if (updated != null) {
+                    productFieldsChanged.fire(new ProductFieldsChangedEvent(id, updated.version,
+                            update.price, update.comparePrice,
+                            update.stockQuantity != null || update.stockDelta != null ? updated.stockQuantity : null,
+                            updated.updatedAt));
+                    return Uni.createFrom().item(new FieldUpdateResult(FieldUpdateStatus.UPDATED, updated));
+                }
+                // Nothing matched: tell a missing product apart from a failed precondition
+                return Product.<Product>findById(objectId).map(current -> {
+                    if (current == null) {
+                        return FieldUpdateResult.of(FieldUpdateStatus.NOT_FOUND);
+                    }
+                    long currentVersion = current.version != null ? current.version : 0L;
+                    if (update.expectedVersion != null && currentVersion != update.expectedVersion) {
+                        return new FieldUpdateResult(FieldUpdateStatus.VERSION_CONFLICT, current);
+                    }
+                    return new FieldUpdateResult(FieldUpdateStatus.INSUFFICIENT_STOCK, current);
+                });
+            });
+    }
+    
+    public enum FieldUpdateStatus {
+        UPDATED, NOT_FOUND, VERSION_CONFLICT, INSUFFICIENT_STOCK
+    }
+    
+    /**
+     * product holds the written fields on UPDATED and the current document on a conflict
+     */
+    public record FieldUpdateResult(FieldUpdateStatus status, Product product) {
+        
+        static FieldUpdateResult of(FieldUpdateStatus status) {
+            return new FieldUpdateResult(status, null);
+        }
+    }
+    
+    /**
+     * Products written before popularityScore existed (seed data, import scripts) get it computed once
+     */
+    private Uni<Long> backfillPopularityScores() {
+        return Product.<Product>stream(new Document("popularityScore", new Document("$exists", false)))
+            .onItem().transformToUniAndConcatenate(product -> {
+                product.refreshPopularityScore();
+                return product.<Product>update();
+            })
+            .collect().with(Collectors.counting());
+    }
+}
@@ -0,0 +1,66 @@
+package com.redhat.ecommerce.product.resource;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductCacheHeadersTest {
+    
+    private static final String ID = "65f1c0ffee0000000000abcd";
+    
+    @Test
+    void absentHeaderIsNoPrecondition() {
+        for (String header : new String[] {null, "", "  "}) {
+            ProductCacheHeaders.IfMatch ifMatch = ProductCacheHeaders.ifMatch(header, ID);
+            assertFalse(ifMatch.present());
+            assertFalse(ifMatch.unsatisfiable());
+            assertNull(ifMatch.version());
+        }
+    }
+    
+    @Test
+    void weakAndStrongTagsNameTheWriteVersion() {
+        assertEquals(7L, ProductCacheHeaders.ifMatch("W/\"" + ID + "-v7\"", ID).version());
+        assertEquals(7L, ProductCacheHeaders.ifMatch("\"" + ID + "-v7\"", ID).version());
+    }
+    
+    @Test
+    void imageVariantsRevisionIsNotPartOfTheVersion() {
+        assertEquals(12L, ProductCacheHeaders.ifMatch("W/\"" + ID + "-v12.3\"", ID).version());
+    }
+    
+    @Test
+    void starMatchesAnyProduct() {
+        ProductCacheHeaders.IfMatch ifMatch = ProductCacheHeaders.ifMatch("*", ID);
+        assertTrue(ifMatch.present());
+        assertTrue(ifMatch.matchesAny());
+        assertFalse(ifMatch.unsatisfiable());
+        assertNull(ifMatch.version());
+    }
+    
+    @Test
+    void unparseableTagsCanNeverMatch() {
+        String[] headers = {
+            "W/\"" + ID + "-1710000000000\"",      // pre-version ETag (last write time)
+            "W/\"65f1c0ffee0000000000dcba-v7\"",   // another product
+            "W/\"" + ID + "-vseven\"",
+            "W/\"3f2a9c\"",                        // list ETag
+            "garbage"
+        };
+        for (String header : headers) {
+            ProductCacheHeaders.IfMatch ifMatch = ProductCacheHeaders.ifMatch(header, ID);
+            assertTrue(ifMatch.present(), header);
+            assertTrue(ifMatch.unsatisfiable(), header);
+        }
+    }
+    
+    @Test
+    void listsUseTheOneVersionNamedForThisProduct() {
+        assertEquals(4L, ProductCacheHeaders.ifMatch("W/\"other-v1\", W/\"" + ID + "-v4\"", ID).version());
+        assertTrue(ProductCacheHeaders.ifMatch("W/\"" + ID + "-v4\", W/\"" + ID + "-v5\"", ID).unsatisfiable());
+        assertTrue(ProductCacheHeaders.ifMatch("W/\"" + ID + "-v4\", *", ID).matchesAny());
+    }
+}
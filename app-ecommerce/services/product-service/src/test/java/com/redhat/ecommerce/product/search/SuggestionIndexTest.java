@@ -0,0 +1,107 @@
+package com.redhat.ecommerce.product.search;
+
+import com.redhat.ecommerce.product.model.Product;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.MultiEmitter;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SuggestionIndexTest {
+    
+    private final SuggestionIndex index = new SuggestionIndex();
+    
+    @Test
+    void changesDuringReloadAreReplayedOntoTheNewTrie() {
+        Product lamp = product("Desk lamp", 10);
+        Product chair = product("Office chair", 5);
+        index.index(lamp);
+        
+        Catalog catalog = new Catalog();
+        index.reload(catalog.products);
+        catalog.emitter.emit(chair);
+        // Land while the catalog is still streaming; the stream then delivers the lamp as it was read before the rename
+        index.index(renamed(lamp, "Reading lamp"));
+        index.remove(chair.id.toString());
+        catalog.emitter.emit(lamp);
+        catalog.emitter.complete();
+        
+        assertEquals(List.of("Reading lamp"), texts(index.suggest("lamp", 5)));
+        assertEquals(List.of(), texts(index.suggest("desk", 5)));
+        assertEquals(List.of(), texts(index.suggest("office", 5)));
+    }
+    
+    @Test
+    void liveTrieServesUntilTheReloadCompletes() {
+        index.index(product("Desk lamp", 10));
+        
+        Catalog catalog = new Catalog();
+        index.reload(catalog.products);
+        catalog.emitter.emit(product("Office chair", 5));
+        assertEquals(List.of("Desk lamp"), texts(index.suggest("desk", 5)));
+        assertEquals(List.of(), texts(index.suggest("office", 5)));
+        
+        catalog.emitter.complete();
+        assertEquals(List.of(), texts(index.suggest("desk", 5)));
+        assertEquals(List.of("Office chair"), texts(index.suggest("office", 5)));
+    }
+    
+    @Test
+    void reloadFinishingAfterANewerOneIsDiscarded() {
+        Catalog older = new Catalog();
+        Catalog newer = new Catalog();
+        index.reload(older.products);
+        index.reload(newer.products);
+        
+        newer.emitter.emit(product("Office chair", 5));
+        newer.emitter.complete();
+        older.emitter.emit(product("Desk lamp", 10));
+        older.emitter.complete();
+        
+        assertEquals(List.of("Office chair"), texts(index.suggest("office", 5)));
+        assertEquals(List.of(), texts(index.suggest("desk", 5)));
+    }
+    
+    @Test
+    void failedReloadKeepsTheLiveTrie() {
+        index.index(product("Desk lamp", 10));
+        
+        Catalog catalog = new Catalog();
+        index.reload(catalog.products);
+        catalog.emitter.emit(product("Office chair", 5));
+        catalog.emitter.fail(new IllegalStateException("connection reset"));
+        index.index(product("Floor lamp", 20));
+        
+        assertEquals(List.of("Floor lamp", "Desk lamp"), texts(index.suggest("lamp", 5)));
+        assertEquals(List.of(), texts(index.suggest("office", 5)));
+    }
+    
+    private static Product product(String name, double popularity) {
+        Product product = new Product();
+        product.id = new ObjectId();
+        product.name = name;
+        product.popularityScore = popularity;
+        return product;
+    }
+    
+    private static Product renamed(Product product, String name) {
+        Product renamed = product(name, product.popularityScore);
+        renamed.id = product.id;
+        return renamed;
+    }
+    
+    private static List<String> texts(List<SuggestionIndex.Suggestion> suggestions) {
+        return suggestions.stream().map(SuggestionIndex.Suggestion::text).toList();
+    }
+    
+    /**
+     * A catalog stream the test feeds by hand, so changes can land while a reload is in progress
+     */
+    private static final class Catalog {
+        MultiEmitter<? super Product> emitter;
+        final Multi<Product> products = Multi.createFrom().emitter(emitter -> this.emitter = emitter);
+    }
+}
@@ -0,0 +1,58 @@
+package com.redhat.ecommerce.product.service;
+
+import com.redhat.ecommerce.product.model.Product;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fails the build when a Product finder's query is not served by one of the declared indexes
+ * Runs against a Dev Services MongoDB; the indexes are created by ProductIndexManager at startup
+ */
+@QuarkusTest
+class ProductIndexManagerTest {
+    
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    
+    @Inject
+    ProductIndexManager indexManager;
+    
+    private Product seeded;
+    
+    /**
+     * On an empty collection the planner may pick a scan without ever costing the indexes,
+     * so seed a product every explained finder matches
+     */
+    @BeforeEach
+    void seed() {
+        seeded = new Product();
+        seeded.name = "Index explain";
+        seeded.slug = ProductIndexManager.EXPLAIN_SLUG;
+        seeded.sku = "explain-" + System.nanoTime();
+        seeded.categoryId = ProductIndexManager.EXPLAIN_CATEGORIES.get(0);
+        seeded.isActive = true;
+        seeded.isFeatured = true;
+        seeded.popularityScore = 1.0;
+        seeded.persist().await().atMost(TIMEOUT);
+    }
+    
+    @AfterEach
+    void cleanUp() {
+        seeded.delete().await().atMost(TIMEOUT);
+    }
+    
+    @Test
+    void everyFinderIsServedByAnIndex() {
+        List<String> scanning = indexManager.findersUsingCollectionScan()
+                .await().atMost(TIMEOUT);
+        
+        assertTrue(scanning.isEmpty(), () -> "Product finders fall back to COLLSCAN: " + scanning);
+    }
+}
@@ -0,0 +1,232 @@
+package com.redhat.ecommerce.recommendation.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redhat.ecommerce.recommendation.dto.RecommendationResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.keys.KeyCommands;
+import io.quarkus.redis.datasource.pubsub.PubSubCommands;
+import io.quarkus.redis.datasource.value.ValueCommands;
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Two-tier cache of recommendation lists: a bounded in-process near-cache in front of Redis
+ * Lists are stored in Redis as JSON together with the limit they were generated for; invalidations delete
+ * the Redis entry and are broadcast on a pub/sub channel so every instance drops its near-cache copy
+ */
+@ApplicationScoped
+public class RecommendationCache {
+    
+    private static final Logger LOG = Logger.getLogger(RecommendationCache.class);
+    
+    private static final String INVALIDATION_CHANNEL = "recommendations:invalidate";
+    
+    // Invalidation messages carry one or more keys
+    private static final String KEY_SEPARATOR = "\n";
+    
+    @Inject
+    RedisDataSource redisDS;
+    
+    @Inject
+    ObjectMapper objectMapper;
+    
+    @Inject
+    MeterRegistry registry;
+    
+    @ConfigProperty(name = "recommendation.cache.ttl")
+    Duration ttl;
+    
+    @ConfigProperty(name = "recommendation.cache.near-ttl", defaultValue = "PT30S")
+    Duration nearTtl;
+    
+    @ConfigProperty(name = "recommendation.cache.max-size", defaultValue = "1000")
+    int maxSize;
+    
+    private final Map<String, Entry> near = new ConcurrentHashMap<>();
+    
+    private ValueCommands<String, String> redis;
+    private KeyCommands<String> keys;
+    private PubSubCommands<String> pubsub;
+    private PubSubCommands.RedisSubscriber subscriber;
+    
+    private Counter nearHits;
+    private Counter nearMisses;
+    private Counter redisHits;
+    private Counter redisMisses;
+    private DistributionSummary payloadBytes;
+    
+    @PostConstruct
+    void init() {
+        redis = redisDS.value(String.class, String.class);
+        keys = redisDS.key(String.class);
+        pubsub = redisDS.pubsub(String.class);
+        
+        nearHits = counter("near", "hit");
+        nearMisses = counter("near", "miss");
+        redisHits = counter("redis", "hit");
+        redisMisses = counter("redis", "miss");
+        payloadBytes = DistributionSummary.builder("recommendation.cache.payload")
+                .description("Encoded size of cached recommendation lists")
+                .baseUnit("bytes")
+                .register(registry);
+        registry.gaugeMapSize("recommendation.cache.near.size", List.of(), near);
+    }
+    
+    void onStart(@Observes StartupEvent event) {
+        try {
+            subscriber = pubsub.subscribe(INVALIDATION_CHANNEL, this::onInvalidation);
+        } catch (Exception e) {
+            // Without the channel other instances' writes only show up once near-ttl expires
+            LOG.warnf("Could not subscribe to %s: %s", INVALIDATION_CHANNEL, e.getMessage());
+        }
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        if (subscriber != null) {
+            subscriber.unsubscribe();
+        }
+    }
+    
+    /**
+     * Cached list for the key, empty on a miss in both tiers
+     */
+    public Optional<Cached> get(String key) {
+        Entry entry = near.get(key);
+        if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+            nearHits.increment();
+            return Optional.of(entry.cached);
+        }
+        if (entry != null) {
+            near.remove(key, entry);
+        }
+        nearMisses.increment();
+        
+        try {
+            String json = redis.get(key);
+            if (json == null) {
+                redisMisses.increment();
+                return Optional.empty();
+            }
+            redisHits.increment();
+            Cached cached = objectMapper.readValue(json, Cached.class);
+            putNear(key, cached);
+            return Optional.of(cached);
+        } catch (Exception e) {
+            // Redis down or an unreadable entry (also one written before limits were stored): treat as a miss
+            LOG.debugf("Recommendation cache read failed for %s: %s", key, e.getMessage());
+            redisMisses.increment();
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Cache the list generated for the given limit
+     */
+    public void put(String key, int limit, List<RecommendationResponse> recommendations) {
+        Cached value = new Cached(limit, List.copyOf(recommendations));
+        putNear(key, value);
+        try {
+            String json = objectMapper.writeValueAsString(value);
+            payloadBytes.record(json.getBytes(StandardCharsets.UTF_8).length);
+            redis.setex(key, ttl.getSeconds(), json);
+        } catch (JsonProcessingException e) {
+            LOG.warnf("Could not encode recommendations for %s: %s", key, e.getMessage());
+        } catch (Exception e) {
+            LOG.debugf("Recommendation cache write failed for %s: %s", key, e.getMessage());
+        }
+    }
+    
+    /**
+     * Drop the key from Redis and from the near-cache of every instance
+     */
+    public void invalidate(String key) {
+        near.remove(key);
+        try {
+            keys.del(key);
+            pubsub.publish(INVALIDATION_CHANNEL, key);
+        } catch (Exception e) {
+            LOG.debugf("Recommendation cache invalidation failed for %s: %s", key, e.getMessage());
+        }
+    }
+    
+    /**
+     * Batched form of invalidate: one DEL and one broadcast for all keys
+     */
+    public void invalidateAll(Collection<String> cacheKeys) {
+        if (cacheKeys.isEmpty()) {
+            return;
+        }
+        cacheKeys.forEach(near::remove);
+        try {
+            keys.del(cacheKeys.toArray(String[]::new));
+            pubsub.publish(INVALIDATION_CHANNEL, String.join(KEY_SEPARATOR, cacheKeys));
+        } catch (Exception e) {
+            LOG.debugf("Recommendation cache invalidation failed for %d keys: %s", cacheKeys.size(), e.getMessage());
+        }
+    }
+    
+    private void onInvalidation(String message) {
+        for (String key : message.split(KEY_SEPARATOR)) {
+            near.remove(key);
+        }
+    }
+    
+    private void putNear(String key, Cached cached) {
+        if (near.size() >= maxSize) {
+            long now = System.nanoTime();
+            near.values().removeIf(entry -> entry.expiresAt - now <= 0);
+            if (near.size() >= maxSize) {
+                // Entries are short-lived; dropping them all is cheaper than tracking recency
+                near.clear();
+            }
+        }
+        near.put(key, new Entry(cached, System.nanoTime() + nearTtl.toNanos()));
+    }
+    
+    private Counter counter(String tier, String result) {
+        return Counter.builder("recommendation.cache.requests")
+                .description("Recommendation cache lookups by tier and outcome")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(registry);
+    }
+    
+    /**
+     * A list and the limit it was generated for
+     */
+    public record Cached(int limit, List<RecommendationResponse> recommendations) {
+        
+        /**
+         * A list cached for a smaller limit cannot answer a larger one, unless the strategy already returned
+         * fewer than it was asked for: then there is nothing more to find
+         */
+        public boolean answers(int requested) {
+            return requested <= limit || recommendations.size() < limit;
+        }
+        
+        public List<RecommendationResponse> first(int requested) {
+            return requested >= recommendations.size() ? recommendations : recommendations.subList(0, requested);
+        }
+    }
+    
+    private record Entry(Cached cached, long expiresAt) {}
+}
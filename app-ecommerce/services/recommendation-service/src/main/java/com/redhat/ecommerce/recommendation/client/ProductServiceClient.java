@@ -4,6 +4,7 @@ import io.smallrye.mutiny.Uni;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
+import java.util.Collection;
 import java.util.List;
 
 @RegisterRestClient(configKey = "product-service")
@@ -15,6 +16,22 @@ public interface ProductServiceClient {
     @Path("/products")
     Uni<ProductApiResponse> getAllProducts(@QueryParam("limit") Integer limit);
     
+    /**
+     * Active products ranked server-side, e.g. sort=popularity
+     */
+    @GET
+    @Path("/products")
+    Uni<ProductApiResponse> getRankedProducts(@QueryParam("sort") String sort, @QueryParam("limit") Integer limit);
+    
+    /**
+     * One page of active products for walking the whole catalog; with sort=id, the products after the given id
+     * (null for the first page) in _id order
+     */
+    @GET
+    @Path("/products")
+    Uni<ProductApiResponse> getProductPage(@QueryParam("sort") String sort, @QueryParam("limit") Integer limit,
+                                           @QueryParam("after") String after);
+    
     @GET
     @Path("/products/{id}")
     Uni<ProductApiResponse.Product> getProduct(@PathParam("id") String id);
@@ -23,12 +40,45 @@ public interface ProductServiceClient {
     @Path("/products")
     Uni<ProductApiResponse> getFeaturedProducts(@QueryParam("featured") boolean featured, @QueryParam("limit") Integer limit);
     
+    /**
+     * Fetch many products in one round trip
+     * ids and fields are comma-separated; fields may be null to get full products
+     */
+    @GET
+    @Path("/products/batch")
+    Uni<ProductApiResponse> getProductsByIds(@QueryParam("ids") String ids, @QueryParam("fields") String fields);
+    
+    default Uni<ProductApiResponse> getProductsByIds(Collection<String> ids, String... fields) {
+        return getProductsByIds(String.join(",", ids), fields.length > 0 ? String.join(",", fields) : null);
+    }
+    
+    /**
+     * The category tree, depth-first
+     */
+    @GET
+    @Path("/products/categories")
+    Uni<CategoryApiResponse> getCategories();
+    
+    class CategoryApiResponse {
+        public List<Category> data;
+        public boolean success;
+        
+        public static class Category {
+            public String id;
+            public String name;
+            public String slug;
+            public String parentId;
+            public String path;
+        }
+    }
+    
     // Response wrapper to match Product Service API structure
     class ProductApiResponse {
         public List<Product> data;
         public boolean success;
         public Pagination pagination;
         public String timestamp;
+        public List<String> missing;
         
         public static class Product {
             public String id;
@@ -46,6 +96,7 @@ public interface ProductServiceClient {
             public String brand;
             public Double rating;
             public Integer reviewCount;
+            public Double popularityScore;
             public String createdAt;
             public String updatedAt;
         }
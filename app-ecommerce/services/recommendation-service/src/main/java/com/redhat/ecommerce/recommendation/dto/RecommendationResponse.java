@@ -15,6 +15,14 @@ public class RecommendationResponse {
     
     public RecommendationResponse() {}
     
+    public RecommendationResponse(String productId, Double score, ProductRecommendation.RecommendationType type, String reason) {
+        this.productId = productId;
+        this.score = score;
+        this.type = type.name().toLowerCase();
+        this.reason = reason;
+        this.timestamp = Instant.now();
+    }
+    
     public RecommendationResponse(ProductRecommendation recommendation) {
         this.productId = recommendation.productId;
         this.score = recommendation.score;
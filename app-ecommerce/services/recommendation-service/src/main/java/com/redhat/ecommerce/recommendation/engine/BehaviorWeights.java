@@ -0,0 +1,31 @@
+package com.redhat.ecommerce.recommendation.engine;
+
+import com.redhat.ecommerce.recommendation.model.UserBehavior;
+
+/**
+ * How strongly each behavior signals interest in a product; zero means it carries no signal
+ */
+public final class BehaviorWeights {
+    
+    private BehaviorWeights() {}
+    
+    public static float of(UserBehavior.BehaviorType type) {
+        return switch (type) {
+            case VIEW, CLICK -> 1f;
+            case SHARE -> 2f;
+            case ADD_TO_CART -> 3f;
+            case PURCHASE -> 5f;
+            case SEARCH, REMOVE_FROM_CART, EXPOSURE -> 0f;
+        };
+    }
+    
+    /**
+     * An explicit rating replaces the behavior weight, and ratings below the threshold carry no signal
+     */
+    public static float of(UserBehavior.BehaviorType type, Double rating, double minRatingThreshold) {
+        if (rating != null) {
+            return rating >= minRatingThreshold ? rating.floatValue() : 0f;
+        }
+        return of(type);
+    }
+}
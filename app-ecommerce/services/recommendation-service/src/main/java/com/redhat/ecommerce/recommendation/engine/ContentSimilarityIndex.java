@@ -0,0 +1,294 @@
+package com.redhat.ecommerce.recommendation.engine;
+
+import com.redhat.ecommerce.recommendation.client.ProductServiceClient;
+import io.quarkus.scheduler.Scheduled;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Content-based product similarity over tags, category, brand and TF-IDF of name and description
+ * Each product becomes a unit-length hashed feature vector; all vectors sit row after row in one float[],
+ * and a query is an exact scan of that array using only the query's non-zero dimensions.
+ * Rebuilt from the Product Service on a schedule and swapped in as a whole
+ */
+@ApplicationScoped
+public class ContentSimilarityIndex {
+    
+    private static final Logger LOG = Logger.getLogger(ContentSimilarityIndex.class);
+    
+    // Relative weight of each feature group before the whole vector is normalized
+    private static final float TEXT_WEIGHT = 1.0f;
+    private static final float TAG_WEIGHT = 1.0f;
+    private static final float CATEGORY_WEIGHT = 0.8f;
+    private static final float BRAND_WEIGHT = 0.5f;
+    
+    private static final int MIN_TERM_LENGTH = 3;
+    
+    private static final Set<String> STOP_WORDS = Set.of(
+        "and", "the", "for", "with", "your", "you", "our", "this", "that", "from", "are", "all", "its", "has", "have",
+        "into", "more", "than", "can", "will", "not", "but", "one");
+    
+    @RestClient
+    ProductServiceClient productServiceClient;
+    
+    @ConfigProperty(name = "recommendation.algorithm.content-based.enabled", defaultValue = "true")
+    boolean enabled;
+    
+    @ConfigProperty(name = "recommendation.algorithm.content-based.dimensions", defaultValue = "256")
+    int dimensions;
+    
+    @ConfigProperty(name = "recommendation.algorithm.content-based.page-size", defaultValue = "500")
+    int pageSize;
+    
+    @ConfigProperty(name = "recommendation.algorithm.content-based.fetch-timeout", defaultValue = "PT30S")
+    Duration fetchTimeout;
+    
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    
+    /**
+     * Runs once right after startup and then every refresh-interval, on a worker thread
+     */
+    @Scheduled(every = "${recommendation.algorithm.content-based.refresh-interval}", delayed = "1s",
+               concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void refresh() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            List<ProductServiceClient.ProductApiResponse.Product> products = fetchAll();
+            if (products.isEmpty()) {
+                LOG.warn("Product Service returned no products, keeping the previous content index");
+                return;
+            }
+            snapshot = build(products, dimensions);
+            LOG.infof("Content similarity index built for %d products in %d ms",
+                    products.size(), (System.nanoTime() - started) / 1_000_000);
+        } catch (Exception e) {
+            LOG.warnf("Content similarity index refresh failed, keeping the previous one: %s", e.getMessage());
+        }
+    }
+    
+    /**
+     * Products most similar to the given one by cosine similarity, best first; empty for unknown products
+     */
+    public List<ItemSimilarityEngine.ScoredProduct> similarTo(String productId, int limit) {
+        return similarTo(List.of(productId), Set.of(), limit);
+    }
+    
+    /**
+     * Products most similar to the centroid of several products, skipping the sources and the excluded ids
+     */
+    public List<ItemSimilarityEngine.ScoredProduct> similarTo(Collection<String> productIds, Set<String> exclude, int limit) {
+        Snapshot current = snapshot;
+        int dim = current.dimensions;
+        float[] query = new float[dim];
+        List<Integer> sources = new ArrayList<>(productIds.size());
+        for (String productId : productIds) {
+            Integer ordinal = current.ordinals.get(productId);
+            if (ordinal != null) {
+                sources.add(ordinal);
+                int offset = ordinal * dim;
+                for (int d = 0; d < dim; d++) {
+                    query[d] += current.vectors[offset + d];
+                }
+            }
+        }
+        if (sources.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        
+        // Product vectors are sparse, so only dimensions where the query is non-zero contribute
+        int nonZero = 0;
+        int[] dims = new int[dim];
+        float[] weights = new float[dim];
+        double norm = 0;
+        for (int d = 0; d < dim; d++) {
+            if (query[d] != 0) {
+                dims[nonZero] = d;
+                weights[nonZero++] = query[d];
+                norm += (double) query[d] * query[d];
+            }
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        
+        TopK best = new TopK(Math.min(limit + sources.size(), current.productIds.length));
+        float[] vectors = current.vectors;
+        for (int item = 0, offset = 0; item < current.productIds.length; item++, offset += dim) {
+            float score = 0;
+            for (int i = 0; i < nonZero; i++) {
+                score += weights[i] * vectors[offset + dims[i]];
+            }
+            if (score > 0) {
+                best.offer(item, score * scale);
+            }
+        }
+        
+        int[] items = new int[best.size()];
+        float[] scores = new float[best.size()];
+        int count = best.drain(items, scores);
+        List<ItemSimilarityEngine.ScoredProduct> results = new ArrayList<>(Math.min(limit, count));
+        for (int i = 0; i < count && results.size() < limit; i++) {
+            String candidate = current.productIds[items[i]];
+            if (!sources.contains(items[i]) && !exclude.contains(candidate)) {
+                results.add(new ItemSimilarityEngine.ScoredProduct(candidate, Math.min(1.0, scores[i])));
+            }
+        }
+        return results;
+    }
+    
+    public int size() {
+        return snapshot.productIds.length;
+    }
+    
+    /**
+     * The active catalog, walked by _id cursor so writes during the walk neither skip nor repeat products;
+     * each product is kept once, since build gives every entry its own row
+     */
+    private List<ProductServiceClient.ProductApiResponse.Product> fetchAll() {
+        Map<String, ProductServiceClient.ProductApiResponse.Product> products = new LinkedHashMap<>();
+        String after = null;
+        while (true) {
+            ProductServiceClient.ProductApiResponse page = productServiceClient
+                    .getProductPage("id", pageSize, after)
+                    .await().atMost(fetchTimeout);
+            if (page == null || page.data == null || page.data.isEmpty()) {
+                break;
+            }
+            for (ProductServiceClient.ProductApiResponse.Product product : page.data) {
+                if (product.id != null) {
+                    products.putIfAbsent(product.id, product);
+                }
+            }
+            after = page.data.get(page.data.size() - 1).id;
+            if (page.data.size() < pageSize || after == null) {
+                break;
+            }
+        }
+        return new ArrayList<>(products.values());
+    }
+    
+    static Snapshot build(List<ProductServiceClient.ProductApiResponse.Product> products, int dim) {
+        int n = products.size();
+        List<Map<String, Integer>> termCounts = new ArrayList<>(n);
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        for (ProductServiceClient.ProductApiResponse.Product product : products) {
+            Map<String, Integer> counts = new HashMap<>();
+            tokenize(product.name, counts);
+            tokenize(product.description, counts);
+            termCounts.add(counts);
+            counts.keySet().forEach(term -> documentFrequency.merge(term, 1, Integer::sum));
+        }
+        
+        String[] productIds = new String[n];
+        Map<String, Integer> ordinals = new HashMap<>(n * 2);
+        float[] vectors = new float[n * dim];
+        float[] block = new float[dim];
+        for (int i = 0; i < n; i++) {
+            ProductServiceClient.ProductApiResponse.Product product = products.get(i);
+            productIds[i] = product.id;
+            ordinals.put(product.id, i);
+            int offset = i * dim;
+            
+            for (Map.Entry<String, Integer> term : termCounts.get(i).entrySet()) {
+                double tf = 1 + Math.log(term.getValue());
+                double idf = Math.log((n + 1.0) / (documentFrequency.get(term.getKey()) + 1.0)) + 1;
+                hashInto(block, "t:" + term.getKey(), (float) (tf * idf));
+            }
+            addNormalized(vectors, offset, block, TEXT_WEIGHT);
+            
+            if (product.tags != null) {
+                for (String tag : product.tags) {
+                    if (tag != null && !tag.isBlank()) {
+                        hashInto(block, "g:" + tag.trim().toLowerCase(Locale.ROOT), 1f);
+                    }
+                }
+            }
+            addNormalized(vectors, offset, block, TAG_WEIGHT);
+            
+            if (product.categoryId != null) {
+                hashInto(block, "c:" + product.categoryId, 1f);
+            }
+            addNormalized(vectors, offset, block, CATEGORY_WEIGHT);
+            
+            if (product.brand != null && !product.brand.isBlank()) {
+                hashInto(block, "b:" + product.brand.trim().toLowerCase(Locale.ROOT), 1f);
+            }
+            addNormalized(vectors, offset, block, BRAND_WEIGHT);
+            
+            normalize(vectors, offset, dim);
+        }
+        return new Snapshot(productIds, ordinals, vectors, dim);
+    }
+    
+    private static void tokenize(String text, Map<String, Integer> counts) {
+        if (text == null) {
+            return;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.length() >= MIN_TERM_LENGTH && !STOP_WORDS.contains(token)) {
+                counts.merge(token, 1, Integer::sum);
+            }
+        }
+    }
+    
+    /**
+     * Signed feature hashing: collisions cancel out on average instead of piling up
+     */
+    private static void hashInto(float[] block, String feature, float value) {
+        int h = feature.hashCode() * 0x9E3779B9;
+        h ^= h >>> 16;
+        int d = (h & Integer.MAX_VALUE) % block.length;
+        block[d] += (h & 0x40000000) != 0 ? value : -value;
+    }
+    
+    /**
+     * Add the block scaled to the given length, then clear it for the next feature group
+     */
+    private static void addNormalized(float[] vectors, int offset, float[] block, float weight) {
+        double norm = 0;
+        for (float value : block) {
+            norm += (double) value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (weight / Math.sqrt(norm));
+            for (int d = 0; d < block.length; d++) {
+                vectors[offset + d] += block[d] * scale;
+            }
+        }
+        Arrays.fill(block, 0f);
+    }
+    
+    private static void normalize(float[] vectors, int offset, int dim) {
+        double norm = 0;
+        for (int d = 0; d < dim; d++) {
+            norm += (double) vectors[offset + d] * vectors[offset + d];
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int d = 0; d < dim; d++) {
+                vectors[offset + d] *= scale;
+            }
+        }
+    }
+    
+    /**
+     * Immutable once published; vectors holds productIds.length rows of dimensions floats
+     */
+    record Snapshot(String[] productIds, Map<String, Integer> ordinals, float[] vectors, int dimensions) {
+        static final Snapshot EMPTY = new Snapshot(new String[0], Map.of(), new float[0], 1);
+    }
+}
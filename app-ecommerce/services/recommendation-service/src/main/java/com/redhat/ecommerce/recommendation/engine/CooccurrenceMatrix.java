@@ -0,0 +1,194 @@
+package com.redhat.ecommerce.recommendation.engine;
+
+import java.util.Arrays;
+
+/**
+ * Sparse symmetric item x item matrix of weighted co-occurrences plus per-item norms
+ * Items are dense int ordinals; each row is an open-addressing int -> float map on primitive arrays,
+ * so an update or a row scan never boxes and a row costs ~8 bytes per neighbor
+ * Not thread-safe, see ItemSimilarityEngine
+ */
+final class CooccurrenceMatrix {
+    
+    private static final int EMPTY = -1;
+    
+    // Weights are at least 1, so anything this small is what is left after subtracting a contribution
+    private static final float CLEARED = 1e-3f;
+    
+    private Row[] rows = new Row[1024];
+    private double[] norms = new double[1024];
+    
+    /**
+     * Add delta to cell (a, b) and (b, a); a cell that drops to zero is removed
+     */
+    void add(int a, int b, float delta) {
+        row(a).add(b, delta);
+        row(b).add(a, delta);
+    }
+    
+    void addNorm(int item, double delta) {
+        ensureCapacity(item);
+        norms[item] += delta;
+        if (norms[item] < CLEARED) {
+            norms[item] = 0;
+        }
+    }
+    
+    double norm(int item) {
+        return item < norms.length ? norms[item] : 0;
+    }
+    
+    int neighborCount(int item) {
+        Row row = item < rows.length ? rows[item] : null;
+        return row != null ? row.size : 0;
+    }
+    
+    float get(int a, int b) {
+        Row row = a < rows.length ? rows[a] : null;
+        return row != null ? row.get(b) : 0f;
+    }
+    
+    /**
+     * The k most similar items by cosine similarity, best first
+     */
+    Neighbors topK(int item, int k) {
+        Row row = item < rows.length ? rows[item] : null;
+        double norm = norm(item);
+        if (row == null || row.size == 0 || norm <= 0 || k <= 0) {
+            return Neighbors.EMPTY;
+        }
+        
+        TopK best = new TopK(Math.min(k, row.size));
+        for (int slot = 0; slot < row.keys.length; slot++) {
+            int other = row.keys[slot];
+            if (other == EMPTY) {
+                continue;
+            }
+            double otherNorm = norm(other);
+            if (otherNorm <= 0) {
+                continue;
+            }
+            best.offer(other, (float) (row.values[slot] / Math.sqrt(norm * otherNorm)));
+        }
+        
+        int[] items = new int[best.size()];
+        float[] scores = new float[best.size()];
+        best.drain(items, scores);
+        return new Neighbors(items, scores);
+    }
+    
+    private Row row(int item) {
+        ensureCapacity(item);
+        Row row = rows[item];
+        if (row == null) {
+            row = new Row();
+            rows[item] = row;
+        }
+        return row;
+    }
+    
+    private void ensureCapacity(int item) {
+        if (item >= rows.length) {
+            int capacity = Math.max(rows.length * 2, item + 1);
+            rows = Arrays.copyOf(rows, capacity);
+            norms = Arrays.copyOf(norms, capacity);
+        }
+    }
+    
+    /**
+     * Immutable top-K result; items are ordinals, see ItemSimilarityEngine for the product ids
+     */
+    record Neighbors(int[] items, float[] scores) {
+        static final Neighbors EMPTY = new Neighbors(new int[0], new float[0]);
+        
+        int size() {
+            return items.length;
+        }
+    }
+    
+    /**
+     * Linear probing, kept at most half full; removal shifts later entries back, so there are no tombstones
+     */
+    private static final class Row {
+        int[] keys = newKeys(8);
+        float[] values = new float[8];
+        int size;
+        
+        void add(int key, float delta) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                size++;
+            }
+            values[slot] += delta;
+            if (Math.abs(values[slot]) < CLEARED) {
+                remove(slot);
+            }
+        }
+        
+        float get(int key) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return 0f;
+        }
+        
+        private void remove(int slot) {
+            int mask = keys.length - 1;
+            int hole = slot;
+            for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+                // An entry may fill the hole only if the hole lies between its home slot and where it sits
+                int home = mix(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+            }
+            keys[hole] = EMPTY;
+            values[hole] = 0f;
+            size--;
+        }
+        
+        private void grow() {
+            int[] oldKeys = keys;
+            float[] oldValues = values;
+            keys = newKeys(oldKeys.length * 2);
+            values = new float[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = mix(oldKeys[i]) & mask;
+                    while (keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+        
+        private static int[] newKeys(int capacity) {
+            int[] keys = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+        
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
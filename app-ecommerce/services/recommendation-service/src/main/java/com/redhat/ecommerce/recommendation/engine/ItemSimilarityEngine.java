@@ -0,0 +1,284 @@
+package com.redhat.ecommerce.recommendation.engine;
+
+import com.redhat.ecommerce.recommendation.model.UserBehavior;
+import io.quarkus.panache.common.Sort;
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Item-item collaborative filtering, updated incrementally from user behavior
+ * Each user is a weighted vector over the items in their remembered history; the engine keeps the dot
+ * products between items (co-occurrence) and each item's squared norm, and takes an entry's contribution
+ * back out when it is evicted, so cosine similarity over the remembered histories is exact at any time
+ * without a batch recomputation. Top-K neighbor lists are cached per item until its row changes
+ */
+@ApplicationScoped
+public class ItemSimilarityEngine {
+    
+    private static final Logger LOG = Logger.getLogger(ItemSimilarityEngine.class);
+    
+    @ConfigProperty(name = "recommendation.algorithm.collaborative-filtering.enabled", defaultValue = "true")
+    boolean enabled;
+    
+    @ConfigProperty(name = "recommendation.algorithm.collaborative-filtering.min-rating-threshold", defaultValue = "3.0")
+    double minRatingThreshold;
+    
+    /** Items remembered per user; the oldest interaction beyond this is evicted along with its contribution */
+    @ConfigProperty(name = "recommendation.algorithm.collaborative-filtering.history-size", defaultValue = "50")
+    int historySize;
+    
+    @ConfigProperty(name = "recommendation.algorithm.collaborative-filtering.max-users", defaultValue = "100000")
+    int maxUsers;
+    
+    @ConfigProperty(name = "recommendation.algorithm.collaborative-filtering.bootstrap-window", defaultValue = "P90D")
+    Duration bootstrapWindow;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private final CooccurrenceMatrix matrix = new CooccurrenceMatrix();
+    
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<String> productIds = new ArrayList<>();
+    
+    // item ordinal -> weight of that item for the user; users are re-inserted on activity, so the first is the least recent
+    private final LinkedHashMap<String, LinkedHashMap<Integer, Float>> histories = new LinkedHashMap<>();
+    
+    private final Map<Integer, CachedNeighbors> neighborCache = new ConcurrentHashMap<>();
+    private int[] rowVersions = new int[1024];
+    
+    private volatile long events;
+    
+    // Until the history replay finishes, results only reflect part of the history
+    private volatile boolean ready;
+    
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Thread bootstrap = new Thread(this::bootstrap, "item-similarity-bootstrap");
+        bootstrap.setDaemon(true);
+        bootstrap.start();
+    }
+    
+    /**
+     * Fold one interaction into the matrix
+     * Repeating a weaker or equal interaction is a no-op; a stronger one (view, then purchase) only adds the difference
+     */
+    public void record(String userId, String productId, UserBehavior.BehaviorType type, Double rating) {
+        float weight = weightOf(type, rating);
+        if (!enabled || weight <= 0 || userId == null || productId == null) {
+            return;
+        }
+        
+        lock.writeLock().lock();
+        try {
+            int item = ordinalOf(productId);
+            LinkedHashMap<Integer, Float> history = histories.remove(userId);
+            if (history == null) {
+                history = new LinkedHashMap<>();
+            }
+            histories.put(userId, history);
+            Float previous = history.get(item);
+            float old = previous != null ? previous : 0f;
+            if (weight <= old) {
+                return;
+            }
+            
+            float delta = weight - old;
+            for (Map.Entry<Integer, Float> other : history.entrySet()) {
+                if (other.getKey() != item) {
+                    matrix.add(item, other.getKey(), delta * other.getValue());
+                    touch(other.getKey());
+                }
+            }
+            matrix.addNorm(item, (double) weight * weight - (double) old * old);
+            touch(item);
+            
+            history.remove(item);
+            history.put(item, weight);
+            if (history.size() > historySize) {
+                Iterator<Map.Entry<Integer, Float>> oldest = history.entrySet().iterator();
+                Map.Entry<Integer, Float> evicted = oldest.next();
+                oldest.remove();
+                subtract(history, evicted.getKey(), evicted.getValue());
+            }
+            if (histories.size() > maxUsers) {
+                Iterator<LinkedHashMap<Integer, Float>> leastRecent = histories.values().iterator();
+                LinkedHashMap<Integer, Float> evicted = leastRecent.next();
+                leastRecent.remove();
+                while (!evicted.isEmpty()) {
+                    Iterator<Map.Entry<Integer, Float>> entries = evicted.entrySet().iterator();
+                    Map.Entry<Integer, Float> entry = entries.next();
+                    entries.remove();
+                    subtract(evicted, entry.getKey(), entry.getValue());
+                }
+            }
+            events++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Most similar products, best first; empty for unknown products
+     */
+    public List<ScoredProduct> similarTo(String productId, int k) {
+        lock.readLock().lock();
+        try {
+            Integer item = ordinals.get(productId);
+            if (item == null) {
+                return List.of();
+            }
+            CooccurrenceMatrix.Neighbors neighbors = neighborsOf(item, k);
+            List<ScoredProduct> results = new ArrayList<>(Math.min(k, neighbors.size()));
+            for (int i = 0; i < neighbors.size() && i < k; i++) {
+                results.add(new ScoredProduct(productIds.get(neighbors.items()[i]), neighbors.scores()[i]));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Products similar to what the user interacted with, excluding those items
+     * Each neighbor scores sum(similarity * the user's weight for the item it is similar to)
+     */
+    public List<ScoredProduct> recommendFor(String userId, int limit, int neighborsPerItem) {
+        lock.readLock().lock();
+        try {
+            LinkedHashMap<Integer, Float> history = histories.get(userId);
+            if (history == null || history.isEmpty()) {
+                return List.of();
+            }
+            Map<Integer, Float> scores = new HashMap<>();
+            for (Map.Entry<Integer, Float> seen : history.entrySet()) {
+                CooccurrenceMatrix.Neighbors neighbors = neighborsOf(seen.getKey(), neighborsPerItem);
+                for (int i = 0; i < neighbors.size(); i++) {
+                    int candidate = neighbors.items()[i];
+                    if (!history.containsKey(candidate)) {
+                        scores.merge(candidate, neighbors.scores()[i] * seen.getValue(), Float::sum);
+                    }
+                }
+            }
+            float maxWeight = (float) history.values().stream().mapToDouble(Float::doubleValue).max().orElse(1);
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Float>comparingByValue().reversed())
+                    .limit(limit)
+                    .map(entry -> new ScoredProduct(productIds.get(entry.getKey()),
+                            Math.min(1.0, entry.getValue() / maxWeight)))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public boolean knowsUser(String userId) {
+        lock.readLock().lock();
+        try {
+            return histories.containsKey(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Whether startup replay of past behavior has finished
+     */
+    public boolean isReady() {
+        return ready;
+    }
+    
+    public long eventsProcessed() {
+        return events;
+    }
+    
+    /**
+     * Callers hold at least the read lock
+     */
+    private CooccurrenceMatrix.Neighbors neighborsOf(int item, int k) {
+        int version = item < rowVersions.length ? rowVersions[item] : 0;
+        CachedNeighbors cached = neighborCache.get(item);
+        if (cached != null && cached.version == version && (cached.k >= k || cached.neighbors.size() < cached.k)) {
+            return cached.neighbors;
+        }
+        CooccurrenceMatrix.Neighbors neighbors = matrix.topK(item, k);
+        neighborCache.put(item, new CachedNeighbors(neighbors, version, k));
+        return neighbors;
+    }
+    
+    /**
+     * Take an evicted entry's contribution back out, against the entries still in its user's history
+     */
+    private void subtract(Map<Integer, Float> history, int item, float weight) {
+        for (Map.Entry<Integer, Float> other : history.entrySet()) {
+            matrix.add(item, other.getKey(), -weight * other.getValue());
+            touch(other.getKey());
+        }
+        matrix.addNorm(item, -(double) weight * weight);
+        touch(item);
+    }
+    
+    private int ordinalOf(String productId) {
+        Integer ordinal = ordinals.get(productId);
+        if (ordinal == null) {
+            ordinal = productIds.size();
+            ordinals.put(productId, ordinal);
+            productIds.add(productId);
+        }
+        return ordinal;
+    }
+    
+    /**
+     * A change to a row also changes the norms its neighbors are divided by, but only that row's
+     * ranking is invalidated; the neighbors' lists are refreshed the next time their own row changes
+     */
+    private void touch(int item) {
+        if (item >= rowVersions.length) {
+            rowVersions = Arrays.copyOf(rowVersions, Math.max(rowVersions.length * 2, item + 1));
+        }
+        rowVersions[item]++;
+    }
+    
+    private float weightOf(UserBehavior.BehaviorType type, Double rating) {
+        return BehaviorWeights.of(type, rating, minRatingThreshold);
+    }
+    
+    /**
+     * Replay recent behavior in time order so the matrix survives restarts
+     */
+    private void bootstrap() {
+        long started = System.nanoTime();
+        Instant since = Instant.now().minus(bootstrapWindow);
+        try (Stream<UserBehavior> behaviors = UserBehavior.stream("timestamp >= ?1", Sort.ascending("timestamp"), since)) {
+            behaviors.forEach(behavior -> record(behavior.userId, behavior.productId, behavior.behaviorType, behavior.rating));
+            LOG.infof("Item similarity engine loaded %d events for %d products in %d ms",
+                    events, productIds.size(), (System.nanoTime() - started) / 1_000_000);
+        } catch (Exception e) {
+            LOG.errorf("Item similarity bootstrap failed: %s", e.getMessage());
+        } finally {
+            ready = true;
+        }
+    }
+    
+    public record ScoredProduct(String productId, double score) {}
+    
+    private record CachedNeighbors(CooccurrenceMatrix.Neighbors neighbors, int version, int k) {}
+}
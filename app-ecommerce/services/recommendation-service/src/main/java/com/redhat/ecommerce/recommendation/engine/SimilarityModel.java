@@ -0,0 +1,229 @@
+package com.redhat.ecommerce.recommendation.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A trained item-item model read straight from a memory-mapped file
+ * Layout, all big-endian and 4-byte aligned:
+ *   header     magic, format, model version (long), products, neighbor entries, dictionary bytes, reserved
+ *   rows       int[products + 1]    CSR offsets into neighbors/scores
+ *   neighbors  int[entries]         product ordinals, best first per row
+ *   scores     float[entries]       cosine similarities
+ *   popularity float[products]      decayed interaction weight, 0..1
+ *   idOffsets  int[products + 1]    offsets into idBytes
+ *   idBytes    UTF-8 product ids, sorted by unsigned bytes, so ordinals follow id order
+ * Opening only validates the header: nothing is decoded or indexed up front, product ids are found by
+ * binary search over the mapped dictionary, so startup cost does not grow with the model and pages
+ * are faulted in as they are used. Every process mapping the same file shares its page cache
+ * Immutable; safe to share between threads
+ */
+public final class SimilarityModel {
+    
+    static final int MAGIC = 0x52434D44;
+    static final int FORMAT = 1;
+    static final int HEADER_BYTES = 32;
+    
+    public static final SimilarityModel EMPTY = new SimilarityModel(ByteBuffer.allocate(HEADER_BYTES), 0, 0, 0, 0);
+    
+    private final ByteBuffer buffer;
+    private final long version;
+    private final int products;
+    private final int rowsBase;
+    private final int neighborsBase;
+    private final int scoresBase;
+    private final int popularityBase;
+    private final int idOffsetsBase;
+    private final int idBytesBase;
+    
+    private SimilarityModel(ByteBuffer buffer, long version, int products, int entries, int dictionaryBytes) {
+        this.buffer = buffer;
+        this.version = version;
+        this.products = products;
+        this.rowsBase = HEADER_BYTES;
+        this.neighborsBase = rowsBase + 4 * (products + 1);
+        this.scoresBase = neighborsBase + 4 * entries;
+        this.popularityBase = scoresBase + 4 * entries;
+        this.idOffsetsBase = popularityBase + 4 * products;
+        this.idBytesBase = idOffsetsBase + 4 * (products + 1);
+    }
+    
+    /**
+     * Map a model file read-only; pages are loaded by the OS as they are touched
+     */
+    public static SimilarityModel open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Unexpected model file size " + size + ": " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+                throw new IOException("Not a format " + FORMAT + " similarity model: " + file);
+            }
+            long version = buffer.getLong(8);
+            int products = buffer.getInt(16);
+            int entries = buffer.getInt(20);
+            int dictionaryBytes = buffer.getInt(24);
+            long expected = HEADER_BYTES + 4L * (products + 1) + 8L * entries + 4L * products
+                    + 4L * (products + 1) + dictionaryBytes;
+            if (expected != size) {
+                throw new IOException("Truncated similarity model, expected " + expected + " bytes but found " + size + ": " + file);
+            }
+            return new SimilarityModel(buffer, version, products, entries, dictionaryBytes);
+        }
+    }
+    
+    /**
+     * Write a model to a temporary file and move it into place, so readers never see a partial file
+     * productIds must be sorted by their UTF-8 bytes (see compareIds); rows, neighbors and scores are CSR over those ordinals
+     */
+    public static void write(Path file, long version, String[] productIds, int[] rows, int[] neighbors, float[] scores,
+                             float[] popularity) throws IOException {
+        byte[][] ids = new byte[productIds.length][];
+        int dictionaryBytes = 0;
+        for (int i = 0; i < productIds.length; i++) {
+            ids[i] = productIds[i].getBytes(StandardCharsets.UTF_8);
+            dictionaryBytes += ids[i].length;
+        }
+        int entries = rows[productIds.length];
+        
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream stream = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(version);
+            out.writeInt(productIds.length);
+            out.writeInt(entries);
+            out.writeInt(dictionaryBytes);
+            out.writeInt(0);
+            for (int row : rows) {
+                out.writeInt(row);
+            }
+            for (int i = 0; i < entries; i++) {
+                out.writeInt(neighbors[i]);
+            }
+            for (int i = 0; i < entries; i++) {
+                out.writeFloat(scores[i]);
+            }
+            for (float prior : popularity) {
+                out.writeFloat(prior);
+            }
+            int offset = 0;
+            out.writeInt(0);
+            for (byte[] id : ids) {
+                offset += id.length;
+                out.writeInt(offset);
+            }
+            for (byte[] id : ids) {
+                out.write(id);
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    public long version() {
+        return version;
+    }
+    
+    public int productCount() {
+        return products;
+    }
+    
+    /**
+     * The k most similar products, best first; empty for products the model has not seen
+     */
+    public List<ItemSimilarityEngine.ScoredProduct> neighbors(String productId, int k) {
+        int ordinal = ordinalOf(productId);
+        if (ordinal < 0 || k <= 0) {
+            return List.of();
+        }
+        int from = buffer.getInt(rowsBase + 4 * ordinal);
+        int to = Math.min(buffer.getInt(rowsBase + 4 * (ordinal + 1)), from + k);
+        List<ItemSimilarityEngine.ScoredProduct> results = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            results.add(new ItemSimilarityEngine.ScoredProduct(
+                    productId(buffer.getInt(neighborsBase + 4 * i)), buffer.getFloat(scoresBase + 4 * i)));
+        }
+        return results;
+    }
+    
+    /**
+     * Popularity prior between 0 and 1; 0 for unknown products
+     */
+    public float popularity(String productId) {
+        int ordinal = ordinalOf(productId);
+        return ordinal >= 0 ? buffer.getFloat(popularityBase + 4 * ordinal) : 0f;
+    }
+    
+    /**
+     * The order product ids must be written in
+     */
+    public static int compareIds(String a, String b) {
+        return Arrays.compareUnsigned(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Binary search of the mapped dictionary, comparing raw bytes without decoding; -1 when absent
+     */
+    private int ordinalOf(String productId) {
+        if (productId == null) {
+            return -1;
+        }
+        byte[] key = productId.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = products - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int from = idBytesBase + buffer.getInt(idOffsetsBase + 4 * mid);
+            int length = buffer.getInt(idOffsetsBase + 4 * (mid + 1)) - (from - idBytesBase);
+            int cmp = compareMapped(from, length, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+    
+    private int compareMapped(int from, int length, byte[] key) {
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Byte.compareUnsigned(buffer.get(from + i), key[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+    
+    private String productId(int ordinal) {
+        int from = buffer.getInt(idOffsetsBase + 4 * ordinal);
+        int to = buffer.getInt(idOffsetsBase + 4 * (ordinal + 1));
+        byte[] bytes = new byte[to - from];
+        buffer.get(idBytesBase + from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,151 @@
+package com.redhat.ecommerce.recommendation.engine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Serves the newest trained model found in the model directory
+ * Models are picked up by polling and replaced with a single volatile write; readers keep whatever
+ * model they already hold, so a swap never blocks or fails a request
+ */
+@ApplicationScoped
+public class SimilarityModelStore {
+    
+    private static final Logger LOG = Logger.getLogger(SimilarityModelStore.class);
+    
+    private static final Pattern MODEL_FILE = Pattern.compile("model-(\\d+)\\.bin");
+    
+    @Inject
+    MeterRegistry registry;
+    
+    @ConfigProperty(name = "recommendation.model.directory", defaultValue = "/tmp/recommendation-models")
+    String modelDirectory;
+    
+    @ConfigProperty(name = "recommendation.model.poll-interval", defaultValue = "PT1M")
+    Duration pollInterval;
+    
+    private Path directory;
+    
+    private volatile SimilarityModel current = SimilarityModel.EMPTY;
+    
+    private Timer loadTimer;
+    
+    @PostConstruct
+    void init() {
+        directory = Path.of(modelDirectory);
+        registry.gauge("recommendation.model.version", this, store -> store.current.version());
+        registry.gauge("recommendation.model.products", this, store -> store.current.productCount());
+        loadTimer = Timer.builder("recommendation.model.load")
+                .description("Time to open and map a model file")
+                .register(registry);
+    }
+    
+    /**
+     * Ahead of the other startup observers: mapping a model is cheap and makes recommendations good
+     * from the first request, while the live engines are still replaying history
+     */
+    void onStart(@Observes @Priority(1) StartupEvent event) {
+        refresh();
+    }
+    
+    public SimilarityModel current() {
+        return current;
+    }
+    
+    /**
+     * Swap in the newest model file if it is newer than the one being served
+     */
+    @Scheduled(every = "${recommendation.model.poll-interval}", delay = 1,
+               concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    public void refresh() {
+        Optional<Path> latest = latestFile();
+        if (latest.isEmpty() || versionOf(latest.get()) <= current.version()) {
+            return;
+        }
+        try {
+            long started = System.nanoTime();
+            SimilarityModel model = SimilarityModel.open(latest.get());
+            long elapsed = System.nanoTime() - started;
+            current = model;
+            loadTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            LOG.infof("Similarity model %d with %d products mapped in %d us",
+                    model.version(), model.productCount(), elapsed / 1_000);
+        } catch (IOException e) {
+            LOG.errorf("Could not load similarity model %s, keeping version %d: %s",
+                    latest.get(), current.version(), e.getMessage());
+        }
+    }
+    
+    /**
+     * Where a model trained at the given version should be written
+     */
+    public Path fileFor(long version) throws IOException {
+        Files.createDirectories(directory);
+        return directory.resolve("model-" + version + ".bin");
+    }
+    
+    /**
+     * Delete all but the newest keep model files; a file still mapped by some process stays readable until unmapped
+     * A file is only deleted once the file that superseded it has been there for a full poll interval, so no
+     * instance can still be about to open it
+     */
+    public void prune(int keep) {
+        List<Path> files = modelFiles().sorted((a, b) -> Long.compare(versionOf(b), versionOf(a))).toList();
+        Instant cutoff = Instant.now().minus(pollInterval);
+        for (int i = Math.max(keep, 1); i < files.size(); i++) {
+            Path file = files.get(i);
+            try {
+                if (Files.getLastModifiedTime(files.get(i - 1)).toInstant().isAfter(cutoff)) {
+                    continue;
+                }
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOG.warnf("Could not delete old model %s: %s", file, e.getMessage());
+            }
+        }
+    }
+    
+    private Optional<Path> latestFile() {
+        return modelFiles().max((a, b) -> Long.compare(versionOf(a), versionOf(b)));
+    }
+    
+    private Stream<Path> modelFiles() {
+        if (!Files.isDirectory(directory)) {
+            return Stream.empty();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> MODEL_FILE.matcher(file.getFileName().toString()).matches())
+                    .toList()
+                    .stream();
+        } catch (IOException e) {
+            LOG.warnf("Could not list model directory %s: %s", directory, e.getMessage());
+            return Stream.empty();
+        }
+    }
+    
+    private static long versionOf(Path file) {
+        Matcher matcher = MODEL_FILE.matcher(file.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+}
@@ -0,0 +1,91 @@
+package com.redhat.ecommerce.recommendation.engine;
+
+/**
+ * The k best (item, score) pairs seen so far, without boxing
+ * Bounded min-heap on parallel primitive arrays: slot 0 is the weakest kept entry,
+ * so an offer below the threshold costs a single comparison
+ * Not thread-safe; meant to be created per query
+ */
+public final class TopK {
+    
+    private final int[] items;
+    private final float[] scores;
+    private int size;
+    
+    public TopK(int k) {
+        items = new int[Math.max(k, 0)];
+        scores = new float[Math.max(k, 0)];
+    }
+    
+    public void offer(int item, float score) {
+        if (size < items.length) {
+            items[size] = item;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (size > 0 && score > scores[0]) {
+            items[0] = item;
+            scores[0] = score;
+            siftDown(size);
+        }
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Empty the heap into best-first arrays; returns how many entries were written
+     */
+    public int drain(int[] outItems, float[] outScores) {
+        int count = size;
+        for (int i = size - 1; i >= 0; i--) {
+            outItems[i] = items[0];
+            outScores[i] = scores[0];
+            items[0] = items[i];
+            scores[0] = scores[i];
+            siftDown(i);
+        }
+        size = 0;
+        return count;
+    }
+    
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+    
+    private void siftDown(int size) {
+        int i = 0;
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && scores[left] < scores[smallest]) {
+                smallest = left;
+            }
+            if (right < size && scores[right] < scores[smallest]) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+    
+    private void swap(int a, int b) {
+        int item = items[a];
+        items[a] = items[b];
+        items[b] = item;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,181 @@
+package com.redhat.ecommerce.recommendation.engine;
+
+import com.redhat.ecommerce.recommendation.model.UserBehavior;
+import io.quarkus.panache.common.Sort;
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Trending products from exponentially decayed interaction counts
+ * Scores are kept relative to a landmark time: an event at t adds weight * 2^((t - landmark) / halfLife).
+ * Decay then scales every score by the same factor, so the ranking only changes when a product
+ * receives an event and the top-K set can be maintained incrementally instead of rescanning
+ */
+@ApplicationScoped
+public class TrendingEngine {
+    
+    private static final Logger LOG = Logger.getLogger(TrendingEngine.class);
+    
+    private static final UserBehavior.BehaviorType[] TYPES = UserBehavior.BehaviorType.values();
+    
+    /** Rebase before the landmark-relative factors grow past ~2^32 */
+    private static final double MAX_EXPONENT = 32;
+    
+    /** Decayed scores below this (in events) are forgotten on rebase */
+    private static final double FORGET_BELOW = 0.01;
+    
+    @ConfigProperty(name = "recommendation.trending.half-life", defaultValue = "PT1H")
+    Duration halfLife;
+    
+    @ConfigProperty(name = "recommendation.trending.top-k", defaultValue = "100")
+    int topK;
+    
+    private final Map<String, Counters> counters = new HashMap<>();
+    
+    // Best first; holds exactly the topK highest scores
+    private final TreeSet<Counters> top = new TreeSet<>((a, b) -> {
+        int byScore = Double.compare(b.score, a.score);
+        return byScore != 0 ? byScore : a.productId.compareTo(b.productId);
+    });
+    
+    private long landmarkMillis = System.currentTimeMillis();
+    
+    // Live events are recorded at the time they arrive, so none can be earlier than the engine itself;
+    // the bootstrap replays only what came before, otherwise events stored meanwhile would count twice
+    private final long replayUntilMillis = landmarkMillis;
+    
+    void onStart(@Observes StartupEvent event) {
+        Thread bootstrap = new Thread(this::bootstrap, "trending-bootstrap");
+        bootstrap.setDaemon(true);
+        bootstrap.start();
+    }
+    
+    public void record(String productId, UserBehavior.BehaviorType type) {
+        record(productId, type, System.currentTimeMillis());
+    }
+    
+    public synchronized void record(String productId, UserBehavior.BehaviorType type, long atMillis) {
+        float weight = BehaviorWeights.of(type);
+        if (productId == null || weight <= 0) {
+            return;
+        }
+        if (exponent(atMillis) > MAX_EXPONENT) {
+            rebase(atMillis);
+        }
+        double scaled = Math.pow(2, exponent(atMillis));
+        
+        Counters product = counters.computeIfAbsent(productId, Counters::new);
+        boolean ranked = top.remove(product);
+        product.score += weight * scaled;
+        product.byType[type.ordinal()] += scaled;
+        
+        // Scores only grow, so a product enters the top set by beating its weakest member
+        if (ranked || top.size() < topK) {
+            top.add(product);
+        } else if (top.last().score < product.score) {
+            top.pollLast();
+            top.add(product);
+        }
+        if (top.size() > topK) {
+            top.pollLast();
+        }
+    }
+    
+    /**
+     * Current top products with their decayed score and per-behavior counts, best first
+     */
+    public synchronized List<TrendingProduct> trending(int limit) {
+        long now = System.currentTimeMillis();
+        double decay = Math.pow(2, -exponent(now));
+        List<TrendingProduct> results = new ArrayList<>(Math.min(limit, top.size()));
+        for (Counters product : top) {
+            if (results.size() >= limit) {
+                break;
+            }
+            Map<String, Double> byType = new HashMap<>();
+            for (UserBehavior.BehaviorType type : TYPES) {
+                double count = product.byType[type.ordinal()] * decay;
+                if (count >= FORGET_BELOW) {
+                    byType.put(type.name().toLowerCase(), count);
+                }
+            }
+            results.add(new TrendingProduct(product.productId, product.score * decay, byType));
+        }
+        return results;
+    }
+    
+    private double exponent(long atMillis) {
+        return (atMillis - landmarkMillis) / (double) halfLife.toMillis();
+    }
+    
+    /**
+     * Move the landmark to now, rescaling everything and dropping products that have decayed away
+     */
+    private void rebase(long nowMillis) {
+        double factor = Math.pow(2, -exponent(nowMillis));
+        landmarkMillis = nowMillis;
+        
+        top.clear();
+        Iterator<Counters> iterator = counters.values().iterator();
+        while (iterator.hasNext()) {
+            Counters product = iterator.next();
+            product.score *= factor;
+            for (int i = 0; i < product.byType.length; i++) {
+                product.byType[i] *= factor;
+            }
+            if (product.score < FORGET_BELOW) {
+                iterator.remove();
+            }
+        }
+        // Rebases are rare (every ~32 half-lives), so rebuilding the ranking with a full pass is fine here
+        for (Counters product : counters.values()) {
+            top.add(product);
+            if (top.size() > topK) {
+                top.pollLast();
+            }
+        }
+    }
+    
+    /**
+     * Events older than a few half-lives no longer matter, so only the newer ones up to the engine's
+     * creation are replayed
+     */
+    private void bootstrap() {
+        Instant until = Instant.ofEpochMilli(replayUntilMillis);
+        Instant since = until.minus(halfLife.multipliedBy(8));
+        try (Stream<UserBehavior> behaviors = UserBehavior.stream("timestamp >= ?1 and timestamp < ?2",
+                Sort.ascending("timestamp"), since, until)) {
+            behaviors
+                .filter(behavior -> behavior.timestamp != null && behavior.behaviorType != null)
+                .forEach(behavior -> record(behavior.productId, behavior.behaviorType, behavior.timestamp.toEpochMilli()));
+            LOG.infof("Trending engine loaded behavior from %s until %s", since, until);
+        } catch (Exception e) {
+            LOG.errorf("Trending bootstrap failed: %s", e.getMessage());
+        }
+    }
+    
+    public record TrendingProduct(String productId, double score, Map<String, Double> decayedCounts) {}
+    
+    private static final class Counters {
+        final String productId;
+        final double[] byType = new double[TYPES.length];
+        double score;
+        
+        Counters(String productId) {
+            this.productId = productId;
+        }
+    }
+}
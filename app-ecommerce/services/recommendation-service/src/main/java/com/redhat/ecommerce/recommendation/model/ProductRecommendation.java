@@ -1,13 +1,12 @@
 package com.redhat.ecommerce.recommendation.model;
 
-import io.quarkus.mongodb.panache.PanacheMongoEntity;
-import io.quarkus.mongodb.panache.common.MongoEntity;
-
 import java.time.Instant;
-import java.util.List;
 
-@MongoEntity(collection = "product_recommendations")
-public class ProductRecommendation extends PanacheMongoEntity {
+/**
+ * One scored candidate for a user, as produced by the generators
+ * Stored per user inside UserRecommendations rather than as a document of its own
+ */
+public class ProductRecommendation {
     
     public String userId;
     public String productId;
@@ -15,7 +14,6 @@ public class ProductRecommendation extends PanacheMongoEntity {
     public RecommendationType type;
     public String reason;
     public Instant createdAt;
-    public Instant expiresAt;
     
     public enum RecommendationType {
         COLLABORATIVE_FILTERING,
@@ -27,36 +25,10 @@ public class ProductRecommendation extends PanacheMongoEntity {
         RECENTLY_VIEWED
     }
     
-    // Panache finder methods
-    public static List<ProductRecommendation> findByUserId(String userId) {
-        return list("userId = ?1 and expiresAt > ?2 order by score desc", 
-                   userId, Instant.now());
-    }
-    
-    public static List<ProductRecommendation> findByUserAndType(String userId, RecommendationType type) {
-        return list("userId = ?1 and type = ?2 and expiresAt > ?3 order by score desc", 
-                   userId, type, Instant.now());
-    }
-    
-    public static List<ProductRecommendation> findTopRecommendations(String userId, int limit) {
-        return find("userId = ?1 and expiresAt > ?2 order by score desc", 
-                   userId, Instant.now())
-                .page(0, limit)
-                .list();
-    }
-    
-    public static List<ProductRecommendation> findSimilarProducts(String productId, int limit) {
-        return find("productId != ?1 and type in (?2, ?3) and expiresAt > ?4 order by score desc",
-                   productId, 
-                   List.of(RecommendationType.CONTENT_BASED, RecommendationType.CROSS_SELL),
-                   Instant.now())
-                .page(0, limit)
-                .list();
-    }
+    public ProductRecommendation() {}
     
-    // Business methods
-    public static void createRecommendation(String userId, String productId, 
-                                          Double score, RecommendationType type, String reason) {
+    public static ProductRecommendation of(String userId, String productId, 
+                                           Double score, RecommendationType type, String reason) {
         ProductRecommendation recommendation = new ProductRecommendation();
         recommendation.userId = userId;
         recommendation.productId = productId;
@@ -64,11 +36,6 @@ public class ProductRecommendation extends PanacheMongoEntity {
         recommendation.type = type;
         recommendation.reason = reason;
         recommendation.createdAt = Instant.now();
-        recommendation.expiresAt = Instant.now().plusSeconds(24 * 60 * 60); // 24 hours
-        recommendation.persist();
-    }
-    
-    public static void cleanupExpired() {
-        delete("expiresAt < ?1", Instant.now());
+        return recommendation;
     }
-}
\ No newline at end of file
+}
@@ -16,9 +16,16 @@ public class UserBehavior extends PanacheMongoEntity {
     public Instant timestamp;
     public String sessionId;
     public Long duration; // For view events
+    // Experiment and variant the user was bucketed into, when an experiment is running
+    public String experiment;
+    public String variant;
+    // Set on events the ingestion pipeline folds into user profiles; the history backfill replays only the others
+    public Boolean profiled;
     
     public enum BehaviorType {
-        VIEW, PURCHASE, ADD_TO_CART, REMOVE_FROM_CART, SEARCH, CLICK, SHARE
+        VIEW, PURCHASE, ADD_TO_CART, REMOVE_FROM_CART, SEARCH, CLICK, SHARE,
+        // Recorded by the service whenever recommendations are served during an experiment, never by clients
+        EXPOSURE
     }
     
     // Panache finder methods
@@ -51,6 +58,14 @@ public class UserBehavior extends PanacheMongoEntity {
     
     public static void trackBehavior(String userId, String productId, BehaviorType type, 
                                    Double rating, String sessionId, Long duration) {
+        of(userId, productId, type, rating, sessionId, duration).persist();
+    }
+    
+    /**
+     * Build without persisting; tracked events are written in batches by BehaviorIngestionPipeline
+     */
+    public static UserBehavior of(String userId, String productId, BehaviorType type, 
+                                  Double rating, String sessionId, Long duration) {
         UserBehavior behavior = new UserBehavior();
         behavior.userId = userId;
         behavior.productId = productId;
@@ -59,6 +74,6 @@ public class UserBehavior extends PanacheMongoEntity {
         behavior.sessionId = sessionId;
         behavior.duration = duration;
         behavior.timestamp = Instant.now();
-        behavior.persist();
+        return behavior;
     }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.redhat.ecommerce.recommendation.model;
+
+import io.quarkus.mongodb.panache.PanacheMongoEntityBase;
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import org.bson.codecs.pojo.annotations.BsonId;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Running summary of one user's behavior, one document per user keyed by userId
+ * Maintained with $inc/$max/$push updates as events are ingested, so reading it never touches user_behaviors
+ */
+@MongoEntity(collection = "user_profiles")
+public class UserProfile extends PanacheMongoEntityBase {
+    
+    @BsonId
+    public String userId;
+    public long totalInteractions;
+    public Map<String, Long> behaviorCounts = new HashMap<>();
+    // categoryId -> summed behavior weight
+    public Map<String, Double> categoryWeights = new HashMap<>();
+    // Oldest first, capped at recommendation.profiles.recent-size
+    public List<RecentProduct> recentProducts = new ArrayList<>();
+    public Instant lastActivity;
+    
+    public static class RecentProduct {
+        public String productId;
+        public UserBehavior.BehaviorType behaviorType;
+        public Instant at;
+        
+        public RecentProduct() {}
+    }
+    
+    /**
+     * The stored profile, or an empty one for users with no tracked behavior yet
+     */
+    public static UserProfile findByUser(String userId) {
+        UserProfile profile = userId != null ? findById(userId) : null;
+        if (profile == null) {
+            profile = new UserProfile();
+            profile.userId = userId;
+        }
+        return profile;
+    }
+    
+    public Map<UserBehavior.BehaviorType, Long> behaviorBreakdown() {
+        Map<UserBehavior.BehaviorType, Long> breakdown = new EnumMap<>(UserBehavior.BehaviorType.class);
+        behaviorCounts.forEach((type, count) -> breakdown.put(UserBehavior.BehaviorType.valueOf(type), count));
+        return breakdown;
+    }
+    
+    public List<String> topCategories(int limit) {
+        return categoryWeights.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+    
+    /**
+     * Distinct recent products, newest first, optionally only those reached through the given behaviors
+     */
+    public Set<String> recentProductIds(UserBehavior.BehaviorType... types) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (int i = recentProducts.size() - 1; i >= 0; i--) {
+            RecentProduct recent = recentProducts.get(i);
+            if (types.length == 0 || List.of(types).contains(recent.behaviorType)) {
+                ids.add(recent.productId);
+            }
+        }
+        return ids;
+    }
+}
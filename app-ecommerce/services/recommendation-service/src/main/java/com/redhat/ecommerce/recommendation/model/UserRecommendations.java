@@ -0,0 +1,87 @@
+package com.redhat.ecommerce.recommendation.model;
+
+import io.quarkus.mongodb.panache.PanacheMongoEntityBase;
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import org.bson.codecs.pojo.annotations.BsonId;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The last generated recommendations of one user: one document per user holding a bounded, best-first array
+ * expiresAt carries a TTL index (see RecommendationIndexManager), so MongoDB removes stale documents itself
+ */
+@MongoEntity(collection = "user_recommendations")
+public class UserRecommendations extends PanacheMongoEntityBase {
+    
+    @BsonId
+    public String userId;
+    public List<Item> items = new ArrayList<>();
+    public Instant generatedAt;
+    public Instant expiresAt;
+    
+    public static class Item {
+        public String productId;
+        public Double score;
+        public ProductRecommendation.RecommendationType type;
+        public String reason;
+        
+        public Item() {}
+    }
+    
+    /**
+     * Keep the best maxItems recommendations, which the generators already return best first
+     */
+    public static UserRecommendations of(String userId, List<ProductRecommendation> recommendations,
+                                         int maxItems, Instant expiresAt) {
+        UserRecommendations stored = new UserRecommendations();
+        stored.userId = userId;
+        stored.generatedAt = Instant.now();
+        stored.expiresAt = expiresAt;
+        for (ProductRecommendation recommendation : recommendations) {
+            if (stored.items.size() >= maxItems) {
+                break;
+            }
+            Item item = new Item();
+            item.productId = recommendation.productId;
+            item.score = recommendation.score;
+            item.type = recommendation.type;
+            item.reason = recommendation.reason;
+            stored.items.add(item);
+        }
+        return stored;
+    }
+    
+    /**
+     * A single _id lookup; the TTL monitor only runs once a minute, so expiry is still checked here
+     */
+    public static Optional<UserRecommendations> findLive(String userId) {
+        return UserRecommendations.<UserRecommendations>findByIdOptional(userId)
+                .filter(stored -> stored.expiresAt == null || stored.expiresAt.isAfter(Instant.now()));
+    }
+    
+    public List<ProductRecommendation> top(int limit) {
+        return top(null, limit);
+    }
+    
+    /**
+     * Best first, optionally only one type
+     */
+    public List<ProductRecommendation> top(ProductRecommendation.RecommendationType type, int limit) {
+        List<ProductRecommendation> results = new ArrayList<>(Math.min(limit, items.size()));
+        for (Item item : items) {
+            if (results.size() >= limit) {
+                break;
+            }
+            if (type == null || item.type == type) {
+                ProductRecommendation recommendation = ProductRecommendation.of(
+                        userId, item.productId, item.score, item.type, item.reason);
+                recommendation.createdAt = generatedAt;
+                results.add(recommendation);
+            }
+        }
+        return results;
+    }
+}
@@ -1,9 +1,14 @@
 package com.redhat.ecommerce.recommendation.resource;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.redhat.ecommerce.recommendation.dto.RecommendationResponse;
 import com.redhat.ecommerce.recommendation.model.UserBehavior;
+import com.redhat.ecommerce.recommendation.model.UserProfile;
 import com.redhat.ecommerce.recommendation.service.RecommendationService;
+import io.smallrye.common.annotation.Blocking;
 import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
@@ -15,8 +20,15 @@ import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Path("/recommendations")
@@ -27,11 +39,32 @@ public class RecommendationResource {
     
     private static final Logger LOG = Logger.getLogger(RecommendationResource.class);
     
+    private static final int TRACKING_RETRY_AFTER_SECONDS = 1;
+    
+    private static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+    
+    private static final int MAX_REPORTED_ERRORS = 20;
+    
+    private static final int TOP_CATEGORIES = 5;
+    
+    // Looked up once per event instead of valueOf throwing for every bad one; exposures are only recorded server-side
+    private static final Map<String, UserBehavior.BehaviorType> BEHAVIOR_TYPES =
+        Arrays.stream(UserBehavior.BehaviorType.values())
+            .filter(type -> type != UserBehavior.BehaviorType.EXPOSURE)
+            .collect(Collectors.toMap(UserBehavior.BehaviorType::name, Function.identity()));
+    
     @Inject
     RecommendationService recommendationService;
     
+    @Inject
+    ObjectMapper objectMapper;
+    
+    @ConfigProperty(name = "recommendation.ingestion.max-batch-events", defaultValue = "1000")
+    int maxBatchEvents;
+    
     @GET
     @Path("/user/{userId}")
+    @Blocking
     @Operation(summary = "Get personalized recommendations for user")
     @APIResponse(responseCode = "200", description = "User recommendations retrieved successfully")
     @APIResponse(responseCode = "404", description = "User not found")
@@ -48,7 +81,7 @@ public class RecommendationResource {
             
             RecommendationResponse.UserRecommendationsResponse response = 
                 new RecommendationResponse.UserRecommendationsResponse(userId, recommendations);
-                
+            
             return Response.ok(response).build();
         });
     }
@@ -66,7 +99,7 @@ public class RecommendationResource {
             
             List<RecommendationResponse> similar = 
                 recommendationService.getSimilarProducts(productId, limit);
-                
+            
             return Response.ok(Map.of(
                 "productId", productId,
                 "similarProducts", similar,
@@ -98,44 +131,72 @@ public class RecommendationResource {
             });
     }
     
+    @GET
+    @Path("/trending")
+    @Operation(summary = "Get products trending right now")
+    @APIResponse(responseCode = "200", description = "Trending products retrieved successfully")
+    public Uni<Response> getTrendingProducts(
+            @Parameter(description = "Number of trending products") @QueryParam("limit") @DefaultValue("20") int limit) {
+        
+        List<RecommendationResponse> trending = recommendationService.getTrendingProducts(limit);
+        
+        return Uni.createFrom().item(Response.ok(Map.of(
+            "products", trending,
+            "count", trending.size()
+        )).build());
+    }
+    
     @POST
     @Path("/track")
     @Operation(summary = "Track user behavior for recommendation engine")
-    @APIResponse(responseCode = "201", description = "Behavior tracked successfully")
+    @APIResponse(responseCode = "202", description = "Behavior accepted for tracking")
     @APIResponse(responseCode = "400", description = "Invalid behavior data")
+    @APIResponse(responseCode = "429", description = "Tracking queue is full, retry later")
     @RolesAllowed({"user", "admin"})
     public Uni<Response> trackBehavior(
             @Parameter(description = "User ID from token") @HeaderParam("X-User-ID") String userId,
             RecommendationResponse.TrackingRequest request) {
         
         return Uni.createFrom().item(() -> {
-            LOG.infof("Tracking behavior for user %s: %s on product %s", 
+            LOG.debugf("Tracking behavior for user %s: %s on product %s", 
                      userId, request.behaviorType, request.productId);
             
             try {
                 UserBehavior.BehaviorType behaviorType = 
-                    UserBehavior.BehaviorType.valueOf(request.behaviorType.toUpperCase());
+                    BEHAVIOR_TYPES.get(request.behaviorType.toUpperCase(Locale.ROOT));
+                if (behaviorType == null) {
+                    throw new IllegalArgumentException("Invalid behavior type: " + request.behaviorType);
+                }
                 
-                recommendationService.trackUserBehavior(
+                boolean accepted = recommendationService.trackUserBehavior(
                     userId, request.productId, behaviorType, 
                     request.rating, request.sessionId, request.duration);
                 
-                return Response.status(Response.Status.CREATED)
+                if (!accepted) {
+                    return Response.status(Response.Status.TOO_MANY_REQUESTS)
+                            .header("Retry-After", TRACKING_RETRY_AFTER_SECONDS)
+                            .entity(Map.of(
+                                "success", false,
+                                "message", "Tracking queue is full, retry later"
+                            )).build();
+                }
+                
+                return Response.status(Response.Status.ACCEPTED)
                         .entity(Map.of(
                             "success", true,
-                            "message", "Behavior tracked successfully",
+                            "message", "Behavior accepted for tracking",
                             "userId", userId,
                             "productId", request.productId,
                             "behaviorType", request.behaviorType
                         )).build();
-                        
+                
             } catch (IllegalArgumentException e) {
                 LOG.errorf("Invalid behavior type: %s", request.behaviorType);
                 return Response.status(Response.Status.BAD_REQUEST)
                         .entity(Map.of(
                             "success", false,
                             "message", "Invalid behavior type: " + request.behaviorType,
-                            "validTypes", UserBehavior.BehaviorType.values()
+                            "validTypes", BEHAVIOR_TYPES.keySet()
                         )).build();
             } catch (Exception e) {
                 LOG.errorf("Error tracking behavior: %s", e.getMessage());
@@ -148,6 +209,81 @@ public class RecommendationResource {
         });
     }
     
+    @POST
+    @Path("/track/batch")
+    @Consumes({MediaType.APPLICATION_JSON, MEDIA_TYPE_NDJSON})
+    @Blocking
+    @Operation(summary = "Track many behavior events at once, as a JSON array or NDJSON")
+    @APIResponse(responseCode = "202", description = "Valid events accepted for tracking, see per-event errors")
+    @APIResponse(responseCode = "400", description = "Unparseable body, too many events or no valid event")
+    @APIResponse(responseCode = "429", description = "Tracking queue is full, retry the whole batch later")
+    @RolesAllowed({"user", "admin"})
+    public Response trackBehaviorBatch(
+            @Parameter(description = "User ID from token") @HeaderParam("X-User-ID") String userId,
+            InputStream body) {
+        
+        List<UserBehavior> behaviors = new ArrayList<>();
+        List<Map<String, Object>> errors = new ArrayList<>();
+        int received = 0;
+        
+        // A root-level array is unwrapped, otherwise whitespace-separated values (NDJSON) are read one by one
+        try (MappingIterator<RecommendationResponse.TrackingRequest> requests =
+                 objectMapper.readerFor(RecommendationResponse.TrackingRequest.class).readValues(body)) {
+            while (requests.hasNextValue()) {
+                RecommendationResponse.TrackingRequest request = requests.nextValue();
+                int index = received++;
+                if (received > maxBatchEvents) {
+                    return badRequest("At most " + maxBatchEvents + " events per batch");
+                }
+                
+                String error = validate(request);
+                if (error != null) {
+                    if (errors.size() < MAX_REPORTED_ERRORS) {
+                        Map<String, Object> entry = new LinkedHashMap<>();
+                        entry.put("index", index);
+                        entry.put("message", error);
+                        errors.add(entry);
+                    }
+                    continue;
+                }
+                behaviors.add(UserBehavior.of(userId, request.productId,
+                        BEHAVIOR_TYPES.get(request.behaviorType.toUpperCase(Locale.ROOT)),
+                        request.rating, request.sessionId, request.duration));
+            }
+        } catch (IOException | RuntimeException e) {
+            // Nothing was queued yet, so the client can fix and resend the whole batch
+            return badRequest("Unparseable batch at event " + received + ": " + e.getMessage());
+        }
+        
+        if (behaviors.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of(
+                        "success", false,
+                        "message", "No valid events in batch",
+                        "errors", errors,
+                        "validTypes", BEHAVIOR_TYPES.keySet()
+                    )).build();
+        }
+        
+        if (!recommendationService.trackUserBehaviors(behaviors)) {
+            return Response.status(Response.Status.TOO_MANY_REQUESTS)
+                    .header("Retry-After", TRACKING_RETRY_AFTER_SECONDS)
+                    .entity(Map.of(
+                        "success", false,
+                        "message", "Tracking queue is full, retry later"
+                    )).build();
+        }
+        LOG.debugf("Accepted %d of %d behavior events for user %s", behaviors.size(), received, userId);
+        
+        return Response.status(Response.Status.ACCEPTED)
+                .entity(Map.of(
+                    "success", errors.isEmpty() && behaviors.size() == received,
+                    "accepted", behaviors.size(),
+                    "rejected", received - behaviors.size(),
+                    "errors", errors
+                )).build();
+    }
+    
     @GET
     @Path("/user/{userId}/stats")
     @Operation(summary = "Get user behavior statistics")
@@ -158,23 +294,37 @@ public class RecommendationResource {
         return Uni.createFrom().item(() -> {
             LOG.infof("Getting stats for user: %s", userId);
             
-            List<UserBehavior> behaviors = UserBehavior.findByUserId(userId);
+            UserProfile profile = recommendationService.getUserProfile(userId);
             
-            Map<UserBehavior.BehaviorType, Long> behaviorCounts = behaviors.stream()
-                    .collect(Collectors.groupingBy(
-                        b -> b.behaviorType,
-                        Collectors.counting()
-                    ));
+            // Map.of rejects the null lastActivity of a user without behavior
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("userId", userId);
+            stats.put("totalInteractions", profile.totalInteractions);
+            stats.put("behaviorBreakdown", profile.behaviorBreakdown());
+            stats.put("lastActivity", profile.lastActivity);
+            stats.put("topCategories", profile.topCategories(TOP_CATEGORIES));
+            stats.put("recentProducts", profile.recentProductIds());
             
-            return Response.ok(Map.of(
-                "userId", userId,
-                "totalInteractions", behaviors.size(),
-                "behaviorBreakdown", behaviorCounts,
-                "lastActivity", behaviors.stream()
-                    .map(b -> b.timestamp)
-                    .max(java.time.Instant::compareTo)
-                    .orElse(null)
-            )).build();
+            return Response.ok(stats).build();
         });
     }
-}
\ No newline at end of file
+    
+    private static String validate(RecommendationResponse.TrackingRequest request) {
+        if (request == null) {
+            return "event must be an object";
+        }
+        if (request.productId == null || request.productId.isBlank()) {
+            return "productId is required";
+        }
+        if (request.behaviorType == null || !BEHAVIOR_TYPES.containsKey(request.behaviorType.toUpperCase(Locale.ROOT))) {
+            return "Invalid behavior type: " + request.behaviorType;
+        }
+        return null;
+    }
+    
+    private static Response badRequest(String message) {
+        return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Map.of("success", false, "message", message))
+                .build();
+    }
+}
@@ -0,0 +1,196 @@
+package com.redhat.ecommerce.recommendation.service;
+
+import com.mongodb.client.model.InsertManyOptions;
+import com.redhat.ecommerce.recommendation.cache.RecommendationCache;
+import com.redhat.ecommerce.recommendation.model.UserBehavior;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Accepts tracked behavior without touching MongoDB or Redis on the request thread
+ * Events go into a bounded lock-free queue and a single flusher writes them with insertMany once
+ * batch-size events are waiting or flush-interval has passed, then folds them into the user profiles;
+ * cache invalidations for the batch are deduplicated per user and sent to Redis together. A full queue rejects new events (backpressure)
+ */
+@ApplicationScoped
+public class BehaviorIngestionPipeline {
+    
+    private static final Logger LOG = Logger.getLogger(BehaviorIngestionPipeline.class);
+    
+    @Inject
+    RecommendationCache recommendationCache;
+    
+    @Inject
+    UserProfileService userProfiles;
+    
+    @Inject
+    ExperimentService experiments;
+    
+    @Inject
+    MeterRegistry registry;
+    
+    @ConfigProperty(name = "recommendation.ingestion.queue-size", defaultValue = "50000")
+    int queueSize;
+    
+    @ConfigProperty(name = "recommendation.ingestion.batch-size", defaultValue = "1000")
+    int batchSize;
+    
+    @ConfigProperty(name = "recommendation.ingestion.flush-interval", defaultValue = "PT0.2S")
+    Duration flushInterval;
+    
+    private final ConcurrentLinkedQueue<UserBehavior> queue = new ConcurrentLinkedQueue<>();
+    
+    // Reserved before enqueueing, so the bound holds without a lock
+    private final AtomicInteger queued = new AtomicInteger();
+    
+    private Counter accepted;
+    private Counter rejected;
+    private Counter failed;
+    private DistributionSummary batchSizes;
+    
+    private Thread flusher;
+    
+    private volatile boolean running;
+    
+    @PostConstruct
+    void init() {
+        accepted = Counter.builder("recommendation.ingestion.events").tag("result", "accepted").register(registry);
+        rejected = Counter.builder("recommendation.ingestion.events").tag("result", "rejected").register(registry);
+        failed = Counter.builder("recommendation.ingestion.events").tag("result", "failed").register(registry);
+        batchSizes = DistributionSummary.builder("recommendation.ingestion.batch")
+                .description("Events written per insertMany")
+                .register(registry);
+        registry.gauge("recommendation.ingestion.queue.depth", queued);
+        
+        running = true;
+        flusher = new Thread(this::run, "behavior-ingestion");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join(flushInterval.toMillis() + 10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Queue an event for persistence, or return false when the queue is full and the caller should back off
+     */
+    public boolean offer(UserBehavior behavior) {
+        int depth;
+        do {
+            depth = queued.get();
+            if (depth >= queueSize) {
+                rejected.increment();
+                return false;
+            }
+        } while (!queued.compareAndSet(depth, depth + 1));
+        
+        queue.add(behavior);
+        accepted.increment();
+        if (depth + 1 >= batchSize) {
+            LockSupport.unpark(flusher);
+        }
+        return true;
+    }
+    
+    /**
+     * Queue a whole batch or none of it, so a client retrying after 429 never double-counts events
+     */
+    public boolean offerAll(List<UserBehavior> behaviors) {
+        int count = behaviors.size();
+        int depth;
+        do {
+            depth = queued.get();
+            if (depth + count > queueSize) {
+                rejected.increment(count);
+                return false;
+            }
+        } while (!queued.compareAndSet(depth, depth + count));
+        
+        queue.addAll(behaviors);
+        accepted.increment(count);
+        if (depth + count >= batchSize) {
+            LockSupport.unpark(flusher);
+        }
+        return true;
+    }
+    
+    public int depth() {
+        return queued.get();
+    }
+    
+    private void run() {
+        List<UserBehavior> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            if (queued.get() < batchSize && running) {
+                LockSupport.parkNanos(this, flushInterval.toNanos());
+            }
+            UserBehavior behavior;
+            while ((behavior = queue.poll()) != null) {
+                queued.decrementAndGet();
+                batch.add(behavior);
+                if (batch.size() >= batchSize) {
+                    flush(batch);
+                }
+            }
+            flush(batch);
+        }
+    }
+    
+    private void flush(List<UserBehavior> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (UserBehavior behavior : batch) {
+            behavior.profiled = true;
+        }
+        try {
+            UserBehavior.mongoCollection().insertMany(batch, new InsertManyOptions().ordered(false));
+            batchSizes.record(batch.size());
+        } catch (Exception e) {
+            // The in-memory engines already have these events; only the stored history misses them
+            failed.increment(batch.size());
+            LOG.errorf("Failed to persist %d behavior events: %s", batch.size(), e.getMessage());
+        }
+        
+        try {
+            userProfiles.apply(batch);
+        } catch (Exception e) {
+            LOG.errorf("Failed to update user profiles for %d behavior events: %s", batch.size(), e.getMessage());
+        }
+        
+        // One invalidation per user per batch instead of one per event; serving recommendations
+        // records an exposure, which must not evict the list it was served from
+        Set<String> users = new LinkedHashSet<>();
+        for (UserBehavior behavior : batch) {
+            if (behavior.userId != null && behavior.behaviorType != UserBehavior.BehaviorType.EXPOSURE) {
+                users.add(RecommendationService.userCacheKey(behavior.userId, experiments.assign(behavior.userId).variant()));
+            }
+        }
+        recommendationCache.invalidateAll(users);
+        batch.clear();
+    }
+}
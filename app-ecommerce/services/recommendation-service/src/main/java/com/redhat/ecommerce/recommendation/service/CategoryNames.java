@@ -0,0 +1,74 @@
+package com.redhat.ecommerce.recommendation.service;
+
+import com.redhat.ecommerce.recommendation.client.ProductServiceClient;
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Category display names from the Product Service category tree
+ * Lookups never wait on the network: a stale map keeps serving while a refresh runs in the background
+ */
+@ApplicationScoped
+public class CategoryNames {
+    
+    private static final Logger LOG = Logger.getLogger(CategoryNames.class);
+    
+    static final String FALLBACK_NAME = "Tech Products";
+    
+    @RestClient
+    ProductServiceClient productServiceClient;
+    
+    @ConfigProperty(name = "recommendation.categories.refresh-interval", defaultValue = "PT10M")
+    Duration refreshInterval;
+    
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    
+    private volatile Map<String, String> names = Map.of();
+    
+    private volatile long refreshedAt = System.nanoTime();
+    
+    void onStart(@Observes StartupEvent event) {
+        refresh();
+    }
+    
+    public String nameOf(String categoryId) {
+        if (System.nanoTime() - refreshedAt > refreshInterval.toNanos() || names.isEmpty()) {
+            refresh();
+        }
+        String name = categoryId != null ? names.get(categoryId) : null;
+        return name != null ? name : FALLBACK_NAME;
+    }
+    
+    private void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        productServiceClient.getCategories()
+            .subscribe().with(
+                response -> {
+                    if (response != null && response.data != null) {
+                        Map<String, String> fresh = new HashMap<>();
+                        response.data.stream()
+                            .filter(category -> category.id != null && category.name != null)
+                            .forEach(category -> fresh.put(category.id, category.name));
+                        names = Map.copyOf(fresh);
+                    }
+                    refreshedAt = System.nanoTime();
+                    refreshing.set(false);
+                },
+                failure -> {
+                    // Retried on the next lookup; meanwhile the last known names keep being served
+                    LOG.warnf("Could not load categories from Product Service: %s", failure.getMessage());
+                    refreshing.set(false);
+                });
+    }
+}
@@ -0,0 +1,182 @@
+package com.redhat.ecommerce.recommendation.service;
+
+import com.redhat.ecommerce.recommendation.model.UserBehavior;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Any;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits users between ranking strategies for the configured experiment
+ * A user's bucket is a hash of the experiment name and userId, so assignment needs no lookup or storage
+ * and stays the same across requests and instances; exposures and tracked outcomes are tagged with the
+ * variant and written through the batched ingestion pipeline
+ */
+@ApplicationScoped
+public class ExperimentService {
+    
+    private static final Logger LOG = Logger.getLogger(ExperimentService.class);
+    
+    static final int BUCKETS = 10_000;
+    
+    @Inject
+    @Any
+    Instance<RecommendationStrategy> strategies;
+    
+    @Inject
+    BehaviorIngestionPipeline ingestionPipeline;
+    
+    @Inject
+    MeterRegistry registry;
+    
+    @ConfigProperty(name = "recommendation.experiments.enabled", defaultValue = "false")
+    boolean enabled;
+    
+    @ConfigProperty(name = "recommendation.experiments.name", defaultValue = "ranking")
+    String experiment;
+    
+    // name:weight pairs, e.g. heuristic:50,model:50
+    @ConfigProperty(name = "recommendation.experiments.variants", defaultValue = "heuristic:100")
+    List<String> variants;
+    
+    @ConfigProperty(name = "recommendation.experiments.default-strategy", defaultValue = HeuristicRankingStrategy.NAME)
+    String defaultStrategy;
+    
+    private Assignment fallback;
+    
+    // Parallel arrays: a bucket below upperBounds[i] belongs to assignments[i]
+    private int[] upperBounds = new int[0];
+    
+    private Assignment[] assignments = new Assignment[0];
+    
+    @PostConstruct
+    void init() {
+        Map<String, RecommendationStrategy> byName = new HashMap<>();
+        for (RecommendationStrategy strategy : strategies) {
+            byName.put(strategy.name(), strategy);
+        }
+        fallback = new Assignment(null, defaultStrategy, strategyNamed(byName, defaultStrategy), null, null);
+        if (!enabled) {
+            return;
+        }
+        
+        List<String> names = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        int totalWeight = 0;
+        for (String variant : variants) {
+            String[] parts = variant.trim().split(":");
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            if (weight <= 0) {
+                continue;
+            }
+            names.add(parts[0].trim());
+            weights.add(weight);
+            totalWeight += weight;
+        }
+        if (totalWeight == 0) {
+            throw new IllegalStateException("Experiment " + experiment + " has no variant with a positive weight");
+        }
+        
+        upperBounds = new int[names.size()];
+        assignments = new Assignment[names.size()];
+        int cumulative = 0;
+        for (int i = 0; i < names.size(); i++) {
+            cumulative += weights.get(i);
+            upperBounds[i] = (int) ((long) cumulative * BUCKETS / totalWeight);
+            String name = names.get(i);
+            assignments[i] = new Assignment(experiment, name, strategyNamed(byName, name),
+                    registry.counter("recommendation.experiment.exposures", "experiment", experiment, "variant", name),
+                    registry.counter("recommendation.experiment.exposures.dropped", "experiment", experiment, "variant", name));
+        }
+        LOG.infof("Experiment %s running with variants %s", experiment, variants);
+    }
+    
+    /**
+     * The variant serving this user; pure computation, safe on any thread
+     */
+    public Assignment assign(String userId) {
+        if (assignments.length == 0 || userId == null) {
+            return fallback;
+        }
+        int bucket = bucket(experiment, userId);
+        for (int i = 0; i < upperBounds.length; i++) {
+            if (bucket < upperBounds[i]) {
+                return assignments[i];
+            }
+        }
+        return assignments[assignments.length - 1];
+    }
+    
+    /**
+     * Tags tracked behavior with the user's variant, so outcomes can be grouped per variant later
+     */
+    public void tag(UserBehavior behavior) {
+        Assignment assignment = assign(behavior.userId);
+        if (assignment.experiment() != null) {
+            behavior.experiment = assignment.experiment();
+            behavior.variant = assignment.variant();
+        }
+    }
+    
+    /**
+     * Queues an exposure for the next ingestion batch; never blocks, and a full queue only drops the exposure
+     */
+    public void recordExposure(String userId, Assignment assignment) {
+        if (assignment.experiment() == null) {
+            return;
+        }
+        UserBehavior exposure = UserBehavior.of(userId, null, UserBehavior.BehaviorType.EXPOSURE, null, null, null);
+        exposure.experiment = assignment.experiment();
+        exposure.variant = assignment.variant();
+        if (ingestionPipeline.offer(exposure)) {
+            assignment.exposures().increment();
+        } else {
+            assignment.dropped().increment();
+        }
+    }
+    
+    /**
+     * FNV-1a over the experiment name, a separator and the userId, finished with the murmur3 mixer
+     * Salting with the experiment name keeps buckets independent between experiments
+     */
+    static int bucket(String experiment, String userId) {
+        int hash = 0x811c9dc5;
+        for (int i = 0; i < experiment.length(); i++) {
+            hash = (hash ^ experiment.charAt(i)) * 0x01000193;
+        }
+        hash = (hash ^ ':') * 0x01000193;
+        for (int i = 0; i < userId.length(); i++) {
+            hash = (hash ^ userId.charAt(i)) * 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return Integer.remainderUnsigned(hash, BUCKETS);
+    }
+    
+    private static RecommendationStrategy strategyNamed(Map<String, RecommendationStrategy> byName, String name) {
+        RecommendationStrategy strategy = byName.get(name);
+        if (strategy == null) {
+            throw new IllegalStateException("No recommendation strategy named " + name + ", known: " + byName.keySet());
+        }
+        return strategy;
+    }
+    
+    /**
+     * experiment is null when no experiment is running and everyone gets the default strategy
+     */
+    public record Assignment(String experiment, String variant, RecommendationStrategy strategy,
+                             Counter exposures, Counter dropped) {}
+}
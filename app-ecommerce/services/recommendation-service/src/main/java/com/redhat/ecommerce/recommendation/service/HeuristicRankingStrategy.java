@@ -0,0 +1,247 @@
+package com.redhat.ecommerce.recommendation.service;
+
+import com.redhat.ecommerce.recommendation.dto.RecommendationResponse;
+import com.redhat.ecommerce.recommendation.engine.ContentSimilarityIndex;
+import com.redhat.ecommerce.recommendation.engine.ItemSimilarityEngine;
+import com.redhat.ecommerce.recommendation.engine.SimilarityModel;
+import com.redhat.ecommerce.recommendation.engine.SimilarityModelStore;
+import com.redhat.ecommerce.recommendation.engine.TopK;
+import com.redhat.ecommerce.recommendation.model.ProductRecommendation;
+import com.redhat.ecommerce.recommendation.model.UserBehavior;
+import com.redhat.ecommerce.recommendation.model.UserProfile;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * The original ranking: collaborative, content-based and popular generators run side by side,
+ * each scoring on its own fixed scale, and the merged list keeps the best score per product
+ */
+@ApplicationScoped
+public class HeuristicRankingStrategy implements RecommendationStrategy {
+    
+    public static final String NAME = "heuristic";
+    
+    private static final Logger LOG = Logger.getLogger(HeuristicRankingStrategy.class);
+    
+    static final int NEIGHBORS_PER_ITEM = 20;
+    
+    // Generators mostly wait on MongoDB; a virtual thread per task keeps that off the worker pool
+    private final ExecutorService generators = Executors.newVirtualThreadPerTaskExecutor();
+    
+    @Inject
+    PopularProductsSnapshot popularProducts;
+    
+    @Inject
+    ItemSimilarityEngine similarityEngine;
+    
+    @Inject
+    ContentSimilarityIndex contentIndex;
+    
+    @Inject
+    SimilarityModelStore modelStore;
+    
+    @Inject
+    UserProfileService userProfiles;
+    
+    @Inject
+    MeterRegistry registry;
+    
+    @ConfigProperty(name = "recommendation.generation.stage-timeout", defaultValue = "PT0.2S")
+    Duration stageTimeout;
+    
+    @Override
+    public String name() {
+        return NAME;
+    }
+    
+    /**
+     * Runs the generators concurrently on virtual threads; a generator that misses its deadline
+     * contributes nothing instead of holding up the response
+     */
+    @Override
+    public List<ProductRecommendation> recommend(String userId, int limit) {
+        int perGenerator = (limit + 2) / 3;
+        
+        // One read of the user's profile serves the content-based and popular generators
+        CompletableFuture<UserProfile> profile = CompletableFuture.supplyAsync(() -> userProfiles.get(userId), generators);
+        
+        // 1. Collaborative Filtering (based on similar users)
+        CompletableFuture<List<ProductRecommendation>> collaborative = withDeadline("collaborative",
+                CompletableFuture.supplyAsync(() -> generateCollaborativeRecommendations(userId, perGenerator), generators)
+                        .thenCombine(profile, (live, p) -> live.isEmpty() || !similarityEngine.isReady()
+                                ? generateModelRecommendations(p, perGenerator) : live));
+        
+        // 2. Content-Based (based on user's previous likes)
+        CompletableFuture<List<ProductRecommendation>> contentBased = withDeadline("content-based",
+                profile.thenApplyAsync(p -> generateContentBasedRecommendations(p, perGenerator), generators));
+        
+        // 3. Popular/Trending products
+        CompletableFuture<List<ProductRecommendation>> popular = withDeadline("popular",
+                profile.thenApplyAsync(p -> generatePopularRecommendations(p, perGenerator), generators));
+        
+        return topCandidates(List.of(collaborative.join(), contentBased.join(), popular.join()), limit);
+    }
+    
+    private CompletableFuture<List<ProductRecommendation>> withDeadline(String generator,
+                                                                      CompletableFuture<List<ProductRecommendation>> candidates) {
+        return candidates
+                .orTimeout(stageTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(failure -> {
+                    Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                    if (cause instanceof TimeoutException) {
+                        registry.counter("recommendation.generator.timeouts", "generator", generator).increment();
+                        LOG.debugf("%s generator missed its %s deadline", generator, stageTimeout);
+                    } else {
+                        LOG.warnf("%s generator failed: %s", generator, cause.getMessage());
+                    }
+                    return List.of();
+                });
+    }
+    
+    /**
+     * Merge the generators' candidates, keeping each product once at its best score, and return the top limit
+     * Scores stay primitive floats in parallel arrays until the winners are picked
+     */
+    static List<ProductRecommendation> topCandidates(List<List<ProductRecommendation>> sources, int limit) {
+        int total = 0;
+        for (List<ProductRecommendation> source : sources) {
+            total += source.size();
+        }
+        if (total == 0 || limit <= 0) {
+            return List.of();
+        }
+        
+        ProductRecommendation[] candidates = new ProductRecommendation[total];
+        float[] scores = new float[total];
+        Map<String, Integer> slots = new HashMap<>(total * 2);
+        int size = 0;
+        for (List<ProductRecommendation> source : sources) {
+            for (ProductRecommendation candidate : source) {
+                float score = candidate.score != null ? candidate.score.floatValue() : 0f;
+                Integer slot = slots.putIfAbsent(candidate.productId, size);
+                if (slot == null) {
+                    candidates[size] = candidate;
+                    scores[size++] = score;
+                } else if (score > scores[slot]) {
+                    candidates[slot] = candidate;
+                    scores[slot] = score;
+                }
+            }
+        }
+        
+        TopK best = new TopK(Math.min(limit, size));
+        for (int i = 0; i < size; i++) {
+            best.offer(i, scores[i]);
+        }
+        int[] winners = new int[best.size()];
+        int count = best.drain(winners, new float[winners.length]);
+        List<ProductRecommendation> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(candidates[winners[i]]);
+        }
+        return results;
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        generators.shutdown();
+    }
+    
+    private List<ProductRecommendation> generateCollaborativeRecommendations(String userId, int limit) {
+        // Item-item: neighbors of what the user interacted with, products they already know excluded
+        List<ProductRecommendation> recommendations = new ArrayList<>();
+        
+        for (ItemSimilarityEngine.ScoredProduct candidate : similarityEngine.recommendFor(userId, limit, NEIGHBORS_PER_ITEM)) {
+            recommendations.add(ProductRecommendation.of(
+                userId, candidate.productId(), candidate.score(),
+                ProductRecommendation.RecommendationType.COLLABORATIVE_FILTERING,
+                "Users with similar preferences also liked this"
+            ));
+        }
+        
+        return recommendations;
+    }
+    
+    /**
+     * Item-item candidates from the last trained model, for users the live engine does not know yet
+     * (e.g. while it is still replaying history after a restart)
+     */
+    private List<ProductRecommendation> generateModelRecommendations(UserProfile profile, int limit) {
+        SimilarityModel model = modelStore.current();
+        Set<String> recent = profile.recentProductIds();
+        if (model.productCount() == 0 || recent.isEmpty()) {
+            return List.of();
+        }
+        
+        Map<String, Double> scores = new HashMap<>();
+        for (String productId : recent) {
+            for (ItemSimilarityEngine.ScoredProduct neighbor : model.neighbors(productId, NEIGHBORS_PER_ITEM)) {
+                if (!recent.contains(neighbor.productId())) {
+                    scores.merge(neighbor.productId(), neighbor.score(), Double::sum);
+                }
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .limit(limit)
+                .map(entry -> ProductRecommendation.of(
+                    profile.userId, entry.getKey(), Math.min(1.0, entry.getValue()),
+                    ProductRecommendation.RecommendationType.COLLABORATIVE_FILTERING,
+                    "Users with similar preferences also liked this"
+                ))
+                .collect(Collectors.toList());
+    }
+    
+    private List<ProductRecommendation> generateContentBasedRecommendations(UserProfile profile, int limit) {
+        List<ProductRecommendation> recommendations = new ArrayList<>();
+        
+        // Nearest products to what the user recently viewed or bought, excluding anything they already saw
+        Set<String> liked = profile.recentProductIds(UserBehavior.BehaviorType.PURCHASE, UserBehavior.BehaviorType.VIEW);
+        for (ItemSimilarityEngine.ScoredProduct candidate : contentIndex.similarTo(liked, profile.recentProductIds(), limit)) {
+            recommendations.add(ProductRecommendation.of(
+                profile.userId, candidate.productId(), 0.7 * candidate.score(),
+                ProductRecommendation.RecommendationType.CONTENT_BASED,
+                "Similar to products you've viewed"
+            ));
+        }
+        
+        return recommendations;
+    }
+    
+    private List<ProductRecommendation> generatePopularRecommendations(UserProfile profile, int limit) {
+        List<ProductRecommendation> recommendations = new ArrayList<>();
+        
+        // Get popular products that user hasn't recently interacted with
+        Set<String> userProductIds = profile.recentProductIds();
+        SimilarityModel model = modelStore.current();
+        
+        for (RecommendationResponse.PopularProduct product : popularProducts.top(Integer.MAX_VALUE)) {
+            if (recommendations.size() >= limit) {
+                break;
+            }
+            if (!userProductIds.contains(product.productId)) {
+                recommendations.add(ProductRecommendation.of(
+                    profile.userId, product.productId, 0.5 + 0.1 * model.popularity(product.productId),
+                    ProductRecommendation.RecommendationType.POPULAR,
+                    product.reason
+                ));
+            }
+        }
+        
+        return recommendations;
+    }
+}
@@ -0,0 +1,158 @@
+package com.redhat.ecommerce.recommendation.service;
+
+import com.redhat.ecommerce.recommendation.dto.RecommendationResponse;
+import com.redhat.ecommerce.recommendation.engine.BehaviorWeights;
+import com.redhat.ecommerce.recommendation.engine.ContentSimilarityIndex;
+import com.redhat.ecommerce.recommendation.engine.ItemSimilarityEngine;
+import com.redhat.ecommerce.recommendation.engine.SimilarityModel;
+import com.redhat.ecommerce.recommendation.engine.SimilarityModelStore;
+import com.redhat.ecommerce.recommendation.engine.TopK;
+import com.redhat.ecommerce.recommendation.model.ProductRecommendation;
+import com.redhat.ecommerce.recommendation.model.UserBehavior;
+import com.redhat.ecommerce.recommendation.model.UserProfile;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ranks every candidate on one scale built from the trained model: item-item similarities weighted
+ * by how strongly the user interacted with each source product, content similarity and the decayed
+ * popularity prior, blended with configurable weights instead of a fixed score per generator
+ */
+@ApplicationScoped
+public class ModelRankingStrategy implements RecommendationStrategy {
+    
+    public static final String NAME = "model";
+    
+    @Inject
+    PopularProductsSnapshot popularProducts;
+    
+    @Inject
+    ContentSimilarityIndex contentIndex;
+    
+    @Inject
+    SimilarityModelStore modelStore;
+    
+    @Inject
+    UserProfileService userProfiles;
+    
+    @ConfigProperty(name = "recommendation.experiments.model-ranking.collaborative-weight", defaultValue = "0.6")
+    float collaborativeWeight;
+    
+    @ConfigProperty(name = "recommendation.experiments.model-ranking.content-weight", defaultValue = "0.3")
+    float contentWeight;
+    
+    @ConfigProperty(name = "recommendation.experiments.model-ranking.popularity-weight", defaultValue = "0.1")
+    float popularityWeight;
+    
+    @Override
+    public String name() {
+        return NAME;
+    }
+    
+    @Override
+    public List<ProductRecommendation> recommend(String userId, int limit) {
+        UserProfile profile = userProfiles.get(userId);
+        SimilarityModel model = modelStore.current();
+        Set<String> seen = profile.recentProductIds();
+        Map<String, Candidate> candidates = new HashMap<>();
+        
+        // Neighbors of each recent interaction, a purchase counting for more than a view
+        float collaborativeMax = 0f;
+        for (UserProfile.RecentProduct recent : profile.recentProducts) {
+            float weight = BehaviorWeights.of(recent.behaviorType);
+            if (weight <= 0) {
+                continue;
+            }
+            for (ItemSimilarityEngine.ScoredProduct neighbor
+                    : model.neighbors(recent.productId, HeuristicRankingStrategy.NEIGHBORS_PER_ITEM)) {
+                if (!seen.contains(neighbor.productId())) {
+                    Candidate candidate = candidates.computeIfAbsent(neighbor.productId(), Candidate::new);
+                    candidate.collaborative += weight * (float) neighbor.score();
+                    collaborativeMax = Math.max(collaborativeMax, candidate.collaborative);
+                }
+            }
+        }
+        
+        Set<String> liked = profile.recentProductIds(UserBehavior.BehaviorType.PURCHASE, UserBehavior.BehaviorType.VIEW);
+        for (ItemSimilarityEngine.ScoredProduct neighbor : contentIndex.similarTo(liked, seen, 2 * limit)) {
+            candidates.computeIfAbsent(neighbor.productId(), Candidate::new).content = (float) neighbor.score();
+        }
+        
+        // Popular products compete on their prior alone, and fill the list for users with no history
+        List<RecommendationResponse.PopularProduct> popular = popularProducts.top(2 * limit);
+        for (int i = 0; i < popular.size(); i++) {
+            RecommendationResponse.PopularProduct product = popular.get(i);
+            if (!seen.contains(product.productId)) {
+                Candidate candidate = candidates.computeIfAbsent(product.productId, Candidate::new);
+                candidate.popularReason = product.reason;
+                candidate.snapshotRank = 1f - (float) i / popular.size();
+            }
+        }
+        if (candidates.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        
+        Candidate[] ranked = candidates.values().toArray(new Candidate[0]);
+        TopK best = new TopK(Math.min(limit, ranked.length));
+        for (int i = 0; i < ranked.length; i++) {
+            Candidate candidate = ranked[i];
+            candidate.collaborative = collaborativeMax > 0 ? candidate.collaborative / collaborativeMax : 0f;
+            // Until a model is trained, the snapshot order stands in for the prior
+            candidate.popularity = model.productCount() > 0 ? model.popularity(candidate.productId) : candidate.snapshotRank;
+            best.offer(i, candidate.score());
+        }
+        int[] winners = new int[best.size()];
+        float[] scores = new float[winners.length];
+        int count = best.drain(winners, scores);
+        List<ProductRecommendation> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(ranked[winners[i]].toRecommendation(userId, scores[i]));
+        }
+        return results;
+    }
+    
+    private final class Candidate {
+        final String productId;
+        float collaborative;
+        float content;
+        float popularity;
+        float snapshotRank;
+        String popularReason;
+        
+        Candidate(String productId) {
+            this.productId = productId;
+        }
+        
+        float score() {
+            return collaborativeWeight * collaborative + contentWeight * content + popularityWeight * popularity;
+        }
+        
+        /**
+         * Typed and explained by whichever signal contributed most to the score
+         */
+        ProductRecommendation toRecommendation(String userId, float score) {
+            float fromCollaborative = collaborativeWeight * collaborative;
+            float fromContent = contentWeight * content;
+            if (fromCollaborative > 0 && fromCollaborative >= fromContent) {
+                return ProductRecommendation.of(userId, productId, (double) score,
+                        ProductRecommendation.RecommendationType.COLLABORATIVE_FILTERING,
+                        "Users with similar preferences also liked this");
+            }
+            if (fromContent > 0) {
+                return ProductRecommendation.of(userId, productId, (double) score,
+                        ProductRecommendation.RecommendationType.CONTENT_BASED,
+                        "Similar to products you've viewed");
+            }
+            return ProductRecommendation.of(userId, productId, (double) score,
+                    ProductRecommendation.RecommendationType.POPULAR,
+                    popularReason != null ? popularReason : "Popular right now");
+        }
+    }
+}
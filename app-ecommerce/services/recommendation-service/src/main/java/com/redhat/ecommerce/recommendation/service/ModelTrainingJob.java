@@ -0,0 +1,295 @@
+package com.redhat.ecommerce.recommendation.service;
+
+import com.redhat.ecommerce.recommendation.engine.BehaviorWeights;
+import com.redhat.ecommerce.recommendation.engine.SimilarityModel;
+import com.redhat.ecommerce.recommendation.engine.SimilarityModelStore;
+import com.redhat.ecommerce.recommendation.engine.TopK;
+import com.redhat.ecommerce.recommendation.model.UserBehavior;
+import io.quarkus.panache.common.Sort;
+import io.quarkus.scheduler.Scheduled;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Batch training of the item-item similarity model
+ * Streams user_behaviors through a cursor into per-user histories, turns them into an item -> users
+ * index, then scores every item's neighbors in parallel on a fork-join pool. The result is written as a
+ * versioned SimilarityModel file that every serving instance maps and swaps in
+ */
+@ApplicationScoped
+public class ModelTrainingJob {
+    
+    private static final Logger LOG = Logger.getLogger(ModelTrainingJob.class);
+    
+    private static final int MODELS_TO_KEEP = 3;
+    
+    @Inject
+    SimilarityModelStore modelStore;
+    
+    /** Off by default so a scaled-out deployment has one trainer; the others just serve what it writes */
+    @ConfigProperty(name = "recommendation.model.training-enabled", defaultValue = "false")
+    boolean trainingEnabled;
+    
+    @ConfigProperty(name = "recommendation.model.training-window", defaultValue = "P90D")
+    Duration trainingWindow;
+    
+    @ConfigProperty(name = "recommendation.model.neighbors", defaultValue = "50")
+    int neighborsPerItem;
+    
+    @ConfigProperty(name = "recommendation.model.parallelism", defaultValue = "0")
+    int parallelism;
+    
+    @ConfigProperty(name = "recommendation.model.popularity-half-life", defaultValue = "P7D")
+    Duration popularityHalfLife;
+    
+    @ConfigProperty(name = "recommendation.algorithm.collaborative-filtering.history-size", defaultValue = "50")
+    int historySize;
+    
+    @ConfigProperty(name = "recommendation.algorithm.collaborative-filtering.min-rating-threshold", defaultValue = "3.0")
+    double minRatingThreshold;
+    
+    @Scheduled(every = "${recommendation.batch.update-frequency}", delay = 2, delayUnit = TimeUnit.MINUTES,
+               concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledTraining() {
+        if (trainingEnabled) {
+            train();
+        }
+    }
+    
+    /**
+     * Train, write and publish a model; returns its version, or -1 when there was nothing to train on
+     */
+    public long train() {
+        long started = System.nanoTime();
+        Instant now = Instant.now();
+        try {
+            Histories histories = readHistories(now);
+            if (histories.productIds.isEmpty()) {
+                LOG.info("No behavior in the training window, skipping model training");
+                return -1;
+            }
+            
+            // Ordinals follow product id order in the model file
+            int n = histories.productIds.size();
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> SimilarityModel.compareIds(histories.productIds.get(a), histories.productIds.get(b)));
+            int[] sortedOrdinal = new int[n];
+            String[] productIds = new String[n];
+            for (int i = 0; i < n; i++) {
+                sortedOrdinal[order[i]] = i;
+                productIds[i] = histories.productIds.get(order[i]);
+            }
+            
+            Csr userItems = Csr.of(histories.users.values(), n, sortedOrdinal);
+            Csr itemUsers = userItems.transpose(n);
+            double[] norms = new double[n];
+            for (int i = 0; i < userItems.values.length; i++) {
+                norms[userItems.columns[i]] += (double) userItems.values[i] * userItems.values[i];
+            }
+            
+            int[][] neighbors = new int[n][];
+            float[][] scores = new float[n][];
+            ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(() -> new Scratch(n));
+            ForkJoinPool pool = parallelism > 0 ? new ForkJoinPool(parallelism) : ForkJoinPool.commonPool();
+            try {
+                pool.submit(() -> IntStream.range(0, n).parallel().forEach(item ->
+                        scoreNeighbors(item, userItems, itemUsers, norms, scratch.get(), neighbors, scores))).get();
+            } finally {
+                if (pool != ForkJoinPool.commonPool()) {
+                    pool.shutdown();
+                }
+            }
+            
+            int[] rows = new int[n + 1];
+            for (int i = 0; i < n; i++) {
+                rows[i + 1] = rows[i] + neighbors[i].length;
+            }
+            int[] flatNeighbors = new int[rows[n]];
+            float[] flatScores = new float[rows[n]];
+            for (int i = 0; i < n; i++) {
+                System.arraycopy(neighbors[i], 0, flatNeighbors, rows[i], neighbors[i].length);
+                System.arraycopy(scores[i], 0, flatScores, rows[i], scores[i].length);
+            }
+            
+            float[] popularity = new float[n];
+            double maxPopularity = Arrays.stream(histories.popularity, 0, n).max().orElse(0);
+            for (int i = 0; i < n; i++) {
+                popularity[sortedOrdinal[i]] = maxPopularity > 0 ? (float) (histories.popularity[i] / maxPopularity) : 0f;
+            }
+            
+            long version = now.toEpochMilli();
+            SimilarityModel.write(modelStore.fileFor(version), version, productIds, rows, flatNeighbors, flatScores, popularity);
+            LOG.infof("Trained similarity model %d from %d events, %d users and %d products in %d ms",
+                    version, histories.events, histories.users.size(), n, (System.nanoTime() - started) / 1_000_000);
+            
+            modelStore.refresh();
+            modelStore.prune(MODELS_TO_KEEP);
+            return version;
+        } catch (Exception e) {
+            LOG.errorf(e, "Model training failed: %s", e.getMessage());
+            return -1;
+        }
+    }
+    
+    private Histories readHistories(Instant now) {
+        Histories histories = new Histories();
+        double halfLifeMillis = popularityHalfLife.toMillis();
+        try (Stream<UserBehavior> behaviors = UserBehavior.stream("timestamp >= ?1", Sort.ascending("timestamp"),
+                now.minus(trainingWindow))) {
+            behaviors.forEach(behavior -> {
+                float weight = BehaviorWeights.of(behavior.behaviorType, behavior.rating, minRatingThreshold);
+                if (weight <= 0 || behavior.userId == null || behavior.productId == null) {
+                    return;
+                }
+                int item = histories.ordinalOf(behavior.productId);
+                long age = behavior.timestamp != null ? Math.max(0, now.toEpochMilli() - behavior.timestamp.toEpochMilli()) : 0;
+                histories.popularity[item] += weight * Math.pow(0.5, age / halfLifeMillis);
+                histories.events++;
+                
+                // Same rule as the live engine: strongest interaction per item, most recent items only
+                LinkedHashMap<Integer, Float> history = histories.users.computeIfAbsent(behavior.userId, id -> new LinkedHashMap<>());
+                Float previous = history.remove(item);
+                history.put(item, previous != null ? Math.max(previous, weight) : weight);
+                if (history.size() > historySize) {
+                    history.remove(history.keySet().iterator().next());
+                }
+            });
+        }
+        return histories;
+    }
+    
+    /**
+     * Cosine similarity of one item against every item sharing a user with it
+     * Reads only shared, immutable arrays and writes only its own slot, so items can run in any order
+     */
+    private void scoreNeighbors(int item, Csr userItems, Csr itemUsers, double[] norms, Scratch scratch,
+                                int[][] neighbors, float[][] scores) {
+        float[] dots = scratch.dots;
+        int touched = 0;
+        for (int u = itemUsers.rows[item]; u < itemUsers.rows[item + 1]; u++) {
+            int user = itemUsers.columns[u];
+            float weight = itemUsers.values[u];
+            for (int j = userItems.rows[user]; j < userItems.rows[user + 1]; j++) {
+                int other = userItems.columns[j];
+                if (other != item) {
+                    if (dots[other] == 0) {
+                        scratch.touched[touched++] = other;
+                    }
+                    dots[other] += weight * userItems.values[j];
+                }
+            }
+        }
+        
+        TopK best = new TopK(Math.min(neighborsPerItem, touched));
+        double norm = norms[item];
+        for (int t = 0; t < touched; t++) {
+            int other = scratch.touched[t];
+            double denominator = Math.sqrt(norm * norms[other]);
+            if (denominator > 0) {
+                best.offer(other, (float) (dots[other] / denominator));
+            }
+            dots[other] = 0;
+        }
+        neighbors[item] = new int[best.size()];
+        scores[item] = new float[best.size()];
+        best.drain(neighbors[item], scores[item]);
+    }
+    
+    /**
+     * Per-thread dense accumulator, cleared entry by entry after each item instead of reallocated
+     */
+    private static final class Scratch {
+        final float[] dots;
+        final int[] touched;
+        
+        Scratch(int items) {
+            dots = new float[items];
+            touched = new int[items];
+        }
+    }
+    
+    private static final class Histories {
+        final Map<String, Integer> ordinals = new HashMap<>();
+        final List<String> productIds = new ArrayList<>();
+        final Map<String, LinkedHashMap<Integer, Float>> users = new HashMap<>();
+        double[] popularity = new double[1024];
+        long events;
+        
+        int ordinalOf(String productId) {
+            Integer ordinal = ordinals.get(productId);
+            if (ordinal == null) {
+                ordinal = productIds.size();
+                ordinals.put(productId, ordinal);
+                productIds.add(productId);
+                if (ordinal >= popularity.length) {
+                    popularity = Arrays.copyOf(popularity, popularity.length * 2);
+                }
+            }
+            return ordinal;
+        }
+    }
+    
+    /**
+     * Compressed sparse rows: row r holds columns[rows[r]..rows[r + 1]) with their values
+     */
+    private record Csr(int[] rows, int[] columns, float[] values) {
+        
+        static Csr of(Iterable<LinkedHashMap<Integer, Float>> histories, int items, int[] remap) {
+            List<LinkedHashMap<Integer, Float>> list = new ArrayList<>();
+            histories.forEach(list::add);
+            int[] rows = new int[list.size() + 1];
+            for (int r = 0; r < list.size(); r++) {
+                rows[r + 1] = rows[r] + list.get(r).size();
+            }
+            int[] columns = new int[rows[list.size()]];
+            float[] values = new float[columns.length];
+            for (int r = 0; r < list.size(); r++) {
+                int i = rows[r];
+                for (Map.Entry<Integer, Float> entry : list.get(r).entrySet()) {
+                    columns[i] = remap[entry.getKey()];
+                    values[i++] = entry.getValue();
+                }
+            }
+            return new Csr(rows, columns, values);
+        }
+        
+        Csr transpose(int columnCount) {
+            int[] counts = new int[columnCount + 1];
+            for (int column : columns) {
+                counts[column + 1]++;
+            }
+            for (int c = 0; c < columnCount; c++) {
+                counts[c + 1] += counts[c];
+            }
+            int[] next = Arrays.copyOf(counts, columnCount);
+            int[] transposedColumns = new int[columns.length];
+            float[] transposedValues = new float[values.length];
+            for (int r = 0; r + 1 < rows.length; r++) {
+                for (int i = rows[r]; i < rows[r + 1]; i++) {
+                    int slot = next[columns[i]]++;
+                    transposedColumns[slot] = r;
+                    transposedValues[slot] = values[i];
+                }
+            }
+            return new Csr(counts, transposedColumns, transposedValues);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.redhat.ecommerce.recommendation.service;
+
+import com.redhat.ecommerce.recommendation.client.ProductServiceClient;
+import com.redhat.ecommerce.recommendation.dto.RecommendationResponse;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Top-N popular products, rebuilt on a schedule and served from memory
+ * Each refresh builds a complete immutable list with scores and reasons precomputed,
+ * then replaces the previous one in a single write
+ */
+@ApplicationScoped
+public class PopularProductsSnapshot {
+    
+    private static final Logger LOG = Logger.getLogger(PopularProductsSnapshot.class);
+    
+    @RestClient
+    ProductServiceClient productServiceClient;
+    
+    @Inject
+    CategoryNames categoryNames;
+    
+    @ConfigProperty(name = "recommendation.batch.popular-products-limit", defaultValue = "50")
+    int popularProductsLimit;
+    
+    private volatile Snapshot snapshot = new Snapshot(List.of(), null);
+    
+    /**
+     * Runs once right after startup and then every update-frequency
+     */
+    @Scheduled(every = "${recommendation.batch.update-frequency}", delayed = "1s",
+               concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    Uni<Void> refresh() {
+        return productServiceClient.getRankedProducts("popularity", popularProductsLimit)
+            .onItem().transform(response -> {
+                if (response == null || response.data == null) {
+                    // Keep serving the previous snapshot
+                    LOG.warn("Product Service returned no popular products");
+                    return null;
+                }
+                List<RecommendationResponse.PopularProduct> products = response.data.stream()
+                    .filter(p -> p.isActive != null && p.isActive)
+                    .limit(popularProductsLimit)
+                    .map(this::toPopularProduct)
+                    .toList();
+                snapshot = new Snapshot(products, Instant.now());
+                LOG.debugf("Popular products snapshot refreshed with %d products", products.size());
+                return null;
+            })
+            .onFailure().invoke(failure -> LOG.warnf("Popular products refresh failed, keeping the previous snapshot: %s",
+                    failure.getMessage()))
+            .onFailure().recoverWithNull()
+            .replaceWithVoid();
+    }
+    
+    /**
+     * The best products, at most limit and at most popular-products-limit; empty until the first refresh
+     */
+    public List<RecommendationResponse.PopularProduct> top(int limit) {
+        List<RecommendationResponse.PopularProduct> products = snapshot.products;
+        return limit >= products.size() ? products : products.subList(0, Math.max(limit, 0));
+    }
+    
+    public Instant refreshedAt() {
+        return snapshot.refreshedAt;
+    }
+    
+    private RecommendationResponse.PopularProduct toPopularProduct(ProductServiceClient.ProductApiResponse.Product product) {
+        double popularity = product.popularityScore != null ? product.popularityScore : 0.0;
+        
+        return new RecommendationResponse.PopularProduct(
+            product.id, product.name, product.description, product.price,
+            product.categoryId, product.tags, product.images, product.brand,
+            product.rating, product.reviewCount, popularity, reasonFor(product)
+        );
+    }
+    
+    private String reasonFor(ProductServiceClient.ProductApiResponse.Product product) {
+        if (product.isFeatured != null && product.isFeatured) {
+            return "Featured product with " + product.rating + " rating";
+        } else if (product.rating != null && product.rating > 4.5) {
+            return "Highly rated with " + product.reviewCount + " reviews";
+        } else {
+            return "Popular in " + categoryNames.nameOf(product.categoryId);
+        }
+    }
+    
+    private record Snapshot(List<RecommendationResponse.PopularProduct> products, Instant refreshedAt) {}
+}
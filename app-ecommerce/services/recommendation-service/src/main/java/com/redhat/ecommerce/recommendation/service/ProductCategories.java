@@ -0,0 +1,120 @@
+package com.redhat.ecommerce.recommendation.service;
+
+import com.redhat.ecommerce.recommendation.client.ProductServiceClient;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * productId -> categoryId, remembered after the first lookup
+ * Misses are fetched from the Product Service batch endpoint; blocking, so only call it off the event loop.
+ * Products the Product Service did not return, or could not be asked about, are not asked for again until
+ * retry-after has passed
+ */
+@ApplicationScoped
+public class ProductCategories {
+    
+    private static final Logger LOG = Logger.getLogger(ProductCategories.class);
+    
+    private static final int IDS_PER_REQUEST = 100;
+    
+    // Remembered for products without a category, so they are not fetched again
+    private static final String NONE = "";
+    
+    @RestClient
+    ProductServiceClient productServiceClient;
+    
+    @ConfigProperty(name = "recommendation.profiles.product-categories-max-size", defaultValue = "200000")
+    int maxSize;
+    
+    @ConfigProperty(name = "recommendation.profiles.product-categories-timeout", defaultValue = "PT2S")
+    Duration timeout;
+    
+    @ConfigProperty(name = "recommendation.profiles.product-categories-retry-after", defaultValue = "PT1M")
+    Duration retryAfter;
+    
+    private final Map<String, String> categories = new ConcurrentHashMap<>();
+    
+    // productId -> System.nanoTime() before which a failed or unknown product is not fetched again
+    private final Map<String, Long> retryAt = new ConcurrentHashMap<>();
+    
+    /**
+     * Category of each product already known, without any remote call
+     */
+    public Map<String, String> cached(Collection<String> productIds) {
+        Map<String, String> resolved = new HashMap<>();
+        for (String productId : productIds) {
+            String categoryId = categories.get(productId);
+            if (categoryId != null && !categoryId.equals(NONE)) {
+                resolved.put(productId, categoryId);
+            }
+        }
+        return resolved;
+    }
+    
+    /**
+     * Category of each known product; products the Product Service could not resolve are left out
+     */
+    public Map<String, String> resolve(Collection<String> productIds) {
+        Map<String, String> resolved = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        long now = System.nanoTime();
+        for (String productId : productIds) {
+            String categoryId = categories.get(productId);
+            if (categoryId == null) {
+                Long retry = retryAt.get(productId);
+                if (retry == null || retry - now <= 0) {
+                    missing.add(productId);
+                }
+            } else if (!categoryId.equals(NONE)) {
+                resolved.put(productId, categoryId);
+            }
+        }
+        
+        for (int from = 0; from < missing.size(); from += IDS_PER_REQUEST) {
+            List<String> chunk = missing.subList(from, Math.min(from + IDS_PER_REQUEST, missing.size()));
+            try {
+                ProductServiceClient.ProductApiResponse response = productServiceClient
+                        .getProductsByIds(chunk, "id", "categoryId")
+                        .await().atMost(timeout);
+                if (categories.size() + chunk.size() > maxSize) {
+                    categories.clear();
+                }
+                if (response != null && response.data != null) {
+                    for (ProductServiceClient.ProductApiResponse.Product product : response.data) {
+                        categories.put(product.id, product.categoryId != null ? product.categoryId : NONE);
+                        retryAt.remove(product.id);
+                        if (product.categoryId != null) {
+                            resolved.put(product.id, product.categoryId);
+                        }
+                    }
+                }
+                // Unknown to the Product Service, possibly not created yet
+                retryLater(chunk.stream().filter(id -> !categories.containsKey(id)).toList());
+            } catch (Exception e) {
+                retryLater(chunk);
+                LOG.debugf("Could not resolve categories for %d products: %s", chunk.size(), e.getMessage());
+            }
+        }
+        return resolved;
+    }
+    
+    private void retryLater(List<String> productIds) {
+        if (retryAt.size() + productIds.size() > maxSize) {
+            retryAt.clear();
+        }
+        long retry = System.nanoTime() + retryAfter.toNanos();
+        for (String productId : productIds) {
+            retryAt.put(productId, retry);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.redhat.ecommerce.recommendation.service;
+
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.redhat.ecommerce.recommendation.model.UserBehavior;
+import com.redhat.ecommerce.recommendation.model.UserRecommendations;
+import io.quarkus.runtime.StartupEvent;
+import org.bson.Document;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the recommendation storage indexes at startup
+ * Expiry is left to MongoDB's TTL monitor instead of periodic range deletes; user_behaviors is indexed by
+ * timestamp for the time-window replays of the engines and the training job, which run after this
+ */
+@ApplicationScoped
+public class RecommendationIndexManager {
+    
+    private static final Logger LOG = Logger.getLogger(RecommendationIndexManager.class);
+    
+    // One document per (user, product) pair, written before user_recommendations existed
+    private static final String LEGACY_COLLECTION = "product_recommendations";
+    
+    void onStart(@Observes @Priority(2) StartupEvent event) {
+        try {
+            // expireAfter(0): each document expires at its own expiresAt
+            String ttl = UserRecommendations.mongoCollection().createIndex(Indexes.ascending("expiresAt"),
+                    new IndexOptions().expireAfter(0L, TimeUnit.SECONDS));
+            String timestamp = UserBehavior.mongoCollection().createIndex(Indexes.ascending("timestamp"));
+            LOG.infof("Recommendation indexes ensured: %s, %s", ttl, timestamp);
+        } catch (Exception e) {
+            LOG.errorf("Failed to create recommendation indexes: %s", e.getMessage());
+        }
+        
+        try {
+            // Nothing writes the legacy collection any more; let its rows age out on their own
+            UserRecommendations.mongoDatabase().getCollection(LEGACY_COLLECTION, Document.class)
+                    .createIndex(Indexes.ascending("expiresAt"), new IndexOptions().expireAfter(0L, TimeUnit.SECONDS));
+        } catch (Exception e) {
+            LOG.warnf("Could not add a TTL index to %s: %s", LEGACY_COLLECTION, e.getMessage());
+        }
+    }
+}
@@ -1,311 +1,215 @@
 package com.redhat.ecommerce.recommendation.service;
 
+import com.redhat.ecommerce.recommendation.cache.RecommendationCache;
 import com.redhat.ecommerce.recommendation.dto.RecommendationResponse;
+import com.redhat.ecommerce.recommendation.engine.ContentSimilarityIndex;
+import com.redhat.ecommerce.recommendation.engine.ItemSimilarityEngine;
+import com.redhat.ecommerce.recommendation.engine.SimilarityModelStore;
+import com.redhat.ecommerce.recommendation.engine.TrendingEngine;
 import com.redhat.ecommerce.recommendation.model.ProductRecommendation;
 import com.redhat.ecommerce.recommendation.model.UserBehavior;
-import com.redhat.ecommerce.recommendation.client.ProductServiceClient;
-import io.quarkus.redis.datasource.RedisDataSource;
-import io.quarkus.redis.datasource.value.ValueCommands;
+import com.redhat.ecommerce.recommendation.model.UserProfile;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
 import io.smallrye.mutiny.Uni;
-import org.eclipse.microprofile.config.inject.ConfigProperty;
-import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jboss.logging.Logger;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import jakarta.annotation.PostConstruct;
-import java.time.Duration;
-import java.time.Instant;
+import java.lang.management.ManagementFactory;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class RecommendationService {
     
+    private static final Logger LOG = Logger.getLogger(RecommendationService.class);
+    
+    private final AtomicLong firstPersonalizedMillis = new AtomicLong(-1);
+    
+    @Inject
+    PopularProductsSnapshot popularProducts;
+    
     @Inject
-    RedisDataSource redisDS;
+    ItemSimilarityEngine similarityEngine;
     
-    @RestClient
-    ProductServiceClient productServiceClient;
+    @Inject
+    ContentSimilarityIndex contentIndex;
     
-    @ConfigProperty(name = "recommendation.cache.ttl")
-    Duration cacheTtl;
+    @Inject
+    SimilarityModelStore modelStore;
+    
+    @Inject
+    RecommendationWriteBehind writeBehind;
     
-    @ConfigProperty(name = "recommendation.algorithm.collaborative-filtering.min-rating-threshold")
-    Double minRatingThreshold;
+    @Inject
+    RecommendationCache recommendationCache;
+    
+    @Inject
+    TrendingEngine trendingEngine;
+    
+    @Inject
+    BehaviorIngestionPipeline ingestionPipeline;
+    
+    @Inject
+    UserProfileService userProfiles;
+    
+    @Inject
+    ExperimentService experiments;
     
-    private ValueCommands<String, String> cache;
+    @Inject
+    MeterRegistry registry;
     
     @PostConstruct
-    public void init() {
-        cache = redisDS.value(String.class, String.class);
+    void init() {
+        TimeGauge.builder("recommendation.cold_start.first_personalized", firstPersonalizedMillis, TimeUnit.MILLISECONDS,
+                        AtomicLong::get)
+                .description("JVM uptime when the first personalized recommendation was served, -1 until then")
+                .register(registry);
     }
     
     public List<RecommendationResponse> getUserRecommendations(String userId, int limit) {
-        // Try cache first
-        String cacheKey = "recommendations:" + userId;
-        String cached = cache.get(cacheKey);
-        
-        if (cached != null) {
-            // Parse cached recommendations (simplified)
-            return getCachedRecommendations(cached, limit);
+        ExperimentService.Assignment assignment = experiments.assign(userId);
+        experiments.recordExposure(userId, assignment);
+        
+        // Try cache first; the key holds the variant, so a user who is re-bucketed never gets another strategy's list
+        String cacheKey = userCacheKey(userId, assignment.variant());
+        Optional<RecommendationCache.Cached> cached = recommendationCache.get(cacheKey);
+        if (cached.isPresent() && cached.get().answers(limit)) {
+            return cached.get().first(limit);
         }
         
-        // Generate fresh recommendations
-        List<ProductRecommendation> recommendations = generateRecommendations(userId, limit);
-        
-        // Cache results
-        cacheRecommendations(cacheKey, recommendations);
+        // Generate fresh recommendations in memory; persisting them happens in the background
+        List<ProductRecommendation> recommendations = registry.timer("recommendation.strategy.duration",
+                "strategy", assignment.variant()).record(() -> assignment.strategy().recommend(userId, limit));
+        recordFirstPersonalized(recommendations);
+        writeBehind.enqueue(userId, recommendations);
         
-        return recommendations.stream()
+        List<RecommendationResponse> responses = recommendations.stream()
                 .map(RecommendationResponse::new)
                 .collect(Collectors.toList());
+        recommendationCache.put(cacheKey, limit, responses);
+        
+        return responses;
     }
     
+    /**
+     * Nearest products by content, topped up with co-viewed products from the live engine and then the trained model;
+     * served from memory, nothing worth caching
+     */
     public List<RecommendationResponse> getSimilarProducts(String productId, int limit) {
-        String cacheKey = "similar:" + productId;
-        String cached = cache.get(cacheKey);
-        
-        if (cached != null) {
-            return getCachedRecommendations(cached, limit);
+        List<RecommendationResponse> similar = new ArrayList<>(limit);
+        Set<String> seen = new HashSet<>();
+        for (ItemSimilarityEngine.ScoredProduct neighbor : contentIndex.similarTo(productId, limit)) {
+            seen.add(neighbor.productId());
+            similar.add(new RecommendationResponse(neighbor.productId(), neighbor.score(),
+                    ProductRecommendation.RecommendationType.CONTENT_BASED, "Similar to this product"));
         }
-        
-        List<ProductRecommendation> similar = ProductRecommendation.findSimilarProducts(productId, limit);
-        cacheRecommendations(cacheKey, similar);
-        
-        return similar.stream()
-                .map(RecommendationResponse::new)
-                .collect(Collectors.toList());
-    }
-    
-    public Uni<List<RecommendationResponse.PopularProduct>> getPopularProducts(int limit) {
-        // Get real products from Product Service (reactive)
-        System.out.println("DEBUG: Calling Product Service for " + (limit * 2) + " products");
-        return productServiceClient.getAllProducts(limit * 2)
-            .onItem().transform(response -> {
-                System.out.println("DEBUG: Product Service response received: " + (response != null));
-                System.out.println("DEBUG: Response data: " + (response != null && response.data != null ? response.data.size() + " products" : "null"));
-                
-                if (response == null || response.data == null) {
-                    System.out.println("DEBUG: Response or data is null, returning empty list");
-                    return new ArrayList<RecommendationResponse.PopularProduct>();
+        if (similar.size() < limit) {
+            for (ItemSimilarityEngine.ScoredProduct neighbor : similarityEngine.similarTo(productId, limit)) {
+                if (similar.size() >= limit) {
+                    break;
                 }
-                
-                // Simple algorithm: sort by rating * reviewCount + featured bonus
-                return response.data.stream()
-                    .filter(p -> p.isActive != null && p.isActive)
-                    .sorted((a, b) -> {
-                        double scoreA = calculatePopularityScore(a);
-                        double scoreB = calculatePopularityScore(b);
-                        return Double.compare(scoreB, scoreA);
-                    })
-                    .limit(limit)
-                    .map(this::convertToPopularProduct)
-                    .collect(Collectors.toList());
-            })
-            .onFailure().recoverWithItem(throwable -> {
-                System.out.println("DEBUG: Product Service call failed: " + throwable.getMessage());
-                throwable.printStackTrace();
-                // Fallback: return empty list if Product Service is unavailable
-                return new ArrayList<>();
-            });
-    }
-    
-    private double calculatePopularityScore(ProductServiceClient.ProductApiResponse.Product product) {
-        double baseScore = (product.rating != null ? product.rating : 0.0) * 
-                          (product.reviewCount != null ? product.reviewCount : 0);
-        double featuredBonus = (product.isFeatured != null && product.isFeatured) ? 100.0 : 0.0;
-        return baseScore + featuredBonus;
-    }
-    
-    private RecommendationResponse.PopularProduct convertToPopularProduct(ProductServiceClient.ProductApiResponse.Product product) {
-        double popularity = calculatePopularityScore(product);
-        String reason = buildRecommendationReason(product);
-        
-        return new RecommendationResponse.PopularProduct(
-            product.id, product.name, product.description, product.price,
-            product.categoryId, product.tags, product.images, product.brand,
-            product.rating, product.reviewCount, popularity, reason
-        );
+                if (seen.add(neighbor.productId())) {
+                    similar.add(new RecommendationResponse(neighbor.productId(), neighbor.score(),
+                            ProductRecommendation.RecommendationType.COLLABORATIVE_FILTERING,
+                            "Customers who viewed this also viewed"));
+                }
+            }
+        }
+        if (similar.size() < limit) {
+            for (ItemSimilarityEngine.ScoredProduct neighbor : modelStore.current().neighbors(productId, limit)) {
+                if (similar.size() >= limit) {
+                    break;
+                }
+                if (seen.add(neighbor.productId())) {
+                    similar.add(new RecommendationResponse(neighbor.productId(), neighbor.score(),
+                            ProductRecommendation.RecommendationType.COLLABORATIVE_FILTERING,
+                            "Customers who viewed this also viewed"));
+                }
+            }
+        }
+        return similar;
     }
     
-    private String buildRecommendationReason(ProductServiceClient.ProductApiResponse.Product product) {
-        if (product.isFeatured != null && product.isFeatured) {
-            return "Featured product with " + product.rating + " rating";
-        } else if (product.rating != null && product.rating > 4.5) {
-            return "Highly rated with " + product.reviewCount + " reviews";
-        } else {
-            return "Popular in " + getReadableCategoryName(product.categoryId);
-        }
+    /**
+     * Products gaining interactions right now, from the in-memory top-K
+     */
+    public List<RecommendationResponse> getTrendingProducts(int limit) {
+        return trendingEngine.trending(limit).stream()
+                .map(product -> new RecommendationResponse(product.productId(), product.score(),
+                        ProductRecommendation.RecommendationType.TRENDING, "Trending now"))
+                .collect(Collectors.toList());
     }
     
-    private String getReadableCategoryName(String categoryId) {
-        // Simple mapping based on known category IDs
-        return switch (categoryId) {
-            case "64f8b3c4d1234567890abcd1" -> "Programming Languages";
-            case "64f8b3c4d1234567890abcd2" -> "Cloud Platforms";
-            case "64f8b3c4d1234567890abcd3" -> "DevOps Tools";
-            case "64f8b3c4d1234567890abcd4" -> "Tech Companies";
-            default -> "Tech Products";
-        };
+    /**
+     * Served from the scheduled snapshot; no I/O on the request path
+     */
+    public Uni<List<RecommendationResponse.PopularProduct>> getPopularProducts(int limit) {
+        return Uni.createFrom().item(popularProducts.top(limit));
     }
     
-    public void trackUserBehavior(String userId, String productId, 
+    /**
+     * Returns false when the ingestion queue is full and the event was dropped
+     */
+    public boolean trackUserBehavior(String userId, String productId, 
                                 UserBehavior.BehaviorType behaviorType, 
                                 Double rating, String sessionId, Long duration) {
         
-        // Store behavior
-        UserBehavior.trackBehavior(userId, productId, behaviorType, rating, sessionId, duration);
-        
-        // Invalidate user's recommendation cache (comment out for now due to API changes)
-        // cache.del("recommendations:" + userId);
-        
-        // Update real-time counters for popular products
-        updatePopularityCounters(productId, behaviorType);
-    }
-    
-    private List<ProductRecommendation> generateRecommendations(String userId, int limit) {
-        List<ProductRecommendation> results = new ArrayList<>();
-        
-        // 1. Collaborative Filtering (based on similar users)
-        results.addAll(generateCollaborativeRecommendations(userId, limit / 3));
-        
-        // 2. Content-Based (based on user's previous likes)
-        results.addAll(generateContentBasedRecommendations(userId, limit / 3));
-        
-        // 3. Popular/Trending products
-        results.addAll(generatePopularRecommendations(userId, limit / 3));
-        
-        // Sort by score and limit
-        return results.stream()
-                .sorted((a, b) -> Double.compare(b.score, a.score))
-                .limit(limit)
-                .collect(Collectors.toList());
-    }
-    
-    private List<ProductRecommendation> generateCollaborativeRecommendations(String userId, int limit) {
-        // Simplified collaborative filtering
-        List<UserBehavior> userBehaviors = UserBehavior.findByUserId(userId);
-        List<ProductRecommendation> recommendations = new ArrayList<>();
-        
-        // Find users with similar behavior patterns
-        Set<String> likedProducts = userBehaviors.stream()
-                .filter(b -> b.rating != null && b.rating >= minRatingThreshold)
-                .map(b -> b.productId)
-                .collect(Collectors.toSet());
-        
-        // This is a simplified version - in production you'd use proper ML algorithms
-        for (String productId : likedProducts) {
-            ProductRecommendation.createRecommendation(
-                userId, productId, 0.8, 
-                ProductRecommendation.RecommendationType.COLLABORATIVE_FILTERING,
-                "Users with similar preferences also liked this"
-            );
-            recommendations.add(ProductRecommendation.findById(productId));
+        // Storing the behavior and invalidating this user's cached recommendations happen in the next batch
+        UserBehavior behavior = UserBehavior.of(userId, productId, behaviorType, rating, sessionId, duration);
+        experiments.tag(behavior);
+        if (!ingestionPipeline.offer(behavior)) {
+            return false;
         }
         
-        return recommendations.stream().limit(limit).collect(Collectors.toList());
-    }
-    
-    private List<ProductRecommendation> generateContentBasedRecommendations(String userId, int limit) {
-        // Simplified content-based filtering
-        List<ProductRecommendation> recommendations = new ArrayList<>();
-        
-        // Get user's recent behaviors
-        List<UserBehavior> recentBehaviors = UserBehavior.findRecentByUser(userId, 10);
+        // Fold into the item-item similarities right away
+        similarityEngine.record(userId, productId, behaviorType, rating);
         
-        // Find similar products (this would use actual product features in production)
-        for (UserBehavior behavior : recentBehaviors) {
-            if (behavior.behaviorType == UserBehavior.BehaviorType.PURCHASE || 
-                behavior.behaviorType == UserBehavior.BehaviorType.VIEW) {
-                
-                ProductRecommendation.createRecommendation(
-                    userId, behavior.productId, 0.7,
-                    ProductRecommendation.RecommendationType.CONTENT_BASED,
-                    "Similar to products you've viewed"
-                );
-            }
-        }
-        
-        return ProductRecommendation.findByUserAndType(userId, 
-                ProductRecommendation.RecommendationType.CONTENT_BASED)
-                .stream().limit(limit).collect(Collectors.toList());
+        // Update real-time trending counters
+        trendingEngine.record(productId, behaviorType);
+        return true;
     }
     
-    private List<ProductRecommendation> generatePopularRecommendations(String userId, int limit) {
-        List<ProductRecommendation> recommendations = new ArrayList<>();
-        
-        // Get popular products that user hasn't interacted with
-        List<UserBehavior> userProducts = UserBehavior.findByUserId(userId);
-        Set<String> userProductIds = userProducts.stream()
-                .map(b -> b.productId)
-                .collect(Collectors.toSet());
-        
-        // This would query actual popular products from analytics
-        // For now, create placeholder recommendations
-        for (int i = 0; i < limit; i++) {
-            String productId = "popular-product-" + i;
-            if (!userProductIds.contains(productId)) {
-                ProductRecommendation.createRecommendation(
-                    userId, productId, 0.6,
-                    ProductRecommendation.RecommendationType.POPULAR,
-                    "Trending now"
-                );
-            }
+    /**
+     * Batch form of trackUserBehavior; the events are queued all together or rejected all together
+     */
+    public boolean trackUserBehaviors(List<UserBehavior> behaviors) {
+        behaviors.forEach(experiments::tag);
+        if (!ingestionPipeline.offerAll(behaviors)) {
+            return false;
         }
         
-        return ProductRecommendation.findByUserAndType(userId, 
-                ProductRecommendation.RecommendationType.POPULAR)
-                .stream().limit(limit).collect(Collectors.toList());
-    }
-    
-    // OLD METHOD - Replaced with real Product Service integration
-    // private List<RecommendationResponse.PopularProduct> calculatePopularProducts(int limit) {
-    //     // This was generating mock data - now we use real products
-    //     List<RecommendationResponse.PopularProduct> popular = new ArrayList<>();
-    //     for (int i = 0; i < limit; i++) {
-    //         popular.add(new RecommendationResponse.PopularProduct(
-    //             "product-" + i, 100L + i * 10, 20L + i * 2, 
-    //             4.5 - (i * 0.1), 0.9 - (i * 0.05)
-    //         ));
-    //     }
-    //     return popular;
-    // }
-    
-    private void updatePopularityCounters(String productId, UserBehavior.BehaviorType behaviorType) {
-        String counterKey = "counters:" + productId + ":" + behaviorType.name().toLowerCase();
-        try {
-            cache.incr(counterKey);
-            // Note: expire with duration not available in this Redis client version
-            // Using expiration via set with TTL instead
-        } catch (Exception e) {
-            // Handle Redis errors gracefully
+        for (UserBehavior behavior : behaviors) {
+            similarityEngine.record(behavior.userId, behavior.productId, behavior.behaviorType, behavior.rating);
+            trendingEngine.record(behavior.productId, behavior.behaviorType);
         }
+        return true;
     }
     
-    private List<RecommendationResponse> getCachedRecommendations(String cached, int limit) {
-        // Simplified cache parsing - in production use proper JSON serialization
-        return new ArrayList<>();
+    public UserProfile getUserProfile(String userId) {
+        return userProfiles.get(userId);
     }
     
-    private void cacheRecommendations(String cacheKey, List<ProductRecommendation> recommendations) {
-        try {
-            // Simplified caching - in production use proper JSON serialization
-            cache.setex(cacheKey, cacheTtl.getSeconds(), "cached-data");
-        } catch (Exception e) {
-            // Handle Redis errors gracefully
+    /**
+     * Cold-start metric: JVM uptime when the first personalized (not just popular) result was served
+     */
+    private void recordFirstPersonalized(List<ProductRecommendation> results) {
+        if (firstPersonalizedMillis.get() >= 0
+                || results.stream().allMatch(r -> r.type == ProductRecommendation.RecommendationType.POPULAR)) {
+            return;
+        }
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        if (firstPersonalizedMillis.compareAndSet(-1, uptime)) {
+            LOG.infof("First personalized recommendations served %d ms after JVM start (model version %d, live engine %s)",
+                    uptime, modelStore.current().version(), similarityEngine.isReady() ? "ready" : "replaying");
         }
     }
     
-    private List<RecommendationResponse.PopularProduct> getCachedPopularProducts(String cached, int limit) {
-        // Simplified cache parsing
-        return new ArrayList<>();
-    }
-    
-    private void cachePopularProducts(String cacheKey, List<RecommendationResponse.PopularProduct> products) {
-        try {
-            cache.setex(cacheKey, cacheTtl.getSeconds(), "cached-popular");
-        } catch (Exception e) {
-            // Handle Redis errors gracefully
-        }
+    static String userCacheKey(String userId, String variant) {
+        return "recommendations:" + variant + ":" + userId;
     }
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.redhat.ecommerce.recommendation.service;
+
+import com.redhat.ecommerce.recommendation.model.ProductRecommendation;
+
+import java.util.List;
+
+/**
+ * One way of ranking a user's recommendations; every CDI bean implementing it can be
+ * named as a variant in recommendation.experiments.variants
+ */
+public interface RecommendationStrategy {
+    
+    /**
+     * Variant name used in the experiment configuration, in metrics and on recorded behavior
+     */
+    String name();
+    
+    /**
+     * At most limit recommendations, best first; only called from worker threads, so it may block
+     */
+    List<ProductRecommendation> recommend(String userId, int limit);
+}
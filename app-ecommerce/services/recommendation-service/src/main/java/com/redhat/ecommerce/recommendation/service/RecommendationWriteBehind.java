@@ -0,0 +1,150 @@
+package com.redhat.ecommerce.recommendation.service;
+
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import com.redhat.ecommerce.recommendation.model.ProductRecommendation;
+import com.redhat.ecommerce.recommendation.model.UserRecommendations;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persists generated recommendations off the request path
+ * Each generation is queued as one per-user document and written by a single background thread in batches,
+ * so serving never waits on MongoDB; when the queue is full new recommendations are dropped, not blocked on
+ */
+@ApplicationScoped
+public class RecommendationWriteBehind {
+    
+    private static final Logger LOG = Logger.getLogger(RecommendationWriteBehind.class);
+    
+    @ConfigProperty(name = "recommendation.write-behind.enabled", defaultValue = "true")
+    boolean enabled;
+    
+    @ConfigProperty(name = "recommendation.write-behind.queue-size", defaultValue = "10000")
+    int queueSize;
+    
+    @ConfigProperty(name = "recommendation.write-behind.batch-size", defaultValue = "500")
+    int batchSize;
+    
+    @ConfigProperty(name = "recommendation.write-behind.flush-interval", defaultValue = "PT1S")
+    Duration flushInterval;
+    
+    @ConfigProperty(name = "recommendation.write-behind.ttl", defaultValue = "PT24H")
+    Duration ttl;
+    
+    @ConfigProperty(name = "recommendation.write-behind.max-items", defaultValue = "50")
+    int maxItems;
+    
+    private final AtomicLong dropped = new AtomicLong();
+    
+    private BlockingQueue<UserRecommendations> queue;
+    
+    private Thread writer;
+    
+    private volatile boolean running;
+    
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueSize);
+        running = true;
+        writer = new Thread(this::run, "recommendation-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(flushInterval.toMillis() + 5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Queue a user's freshly generated recommendations, best first; they replace whatever was stored for the user
+     */
+    public void enqueue(String userId, List<ProductRecommendation> recommendations) {
+        if (!enabled || userId == null) {
+            return;
+        }
+        UserRecommendations stored = UserRecommendations.of(userId, recommendations, maxItems, Instant.now().plus(ttl));
+        if (!queue.offer(stored)) {
+            if (dropped.incrementAndGet() % 1000 == 1) {
+                LOG.warnf("Recommendation write-behind queue full, %d recommendation sets dropped so far", dropped.get());
+            }
+        }
+    }
+    
+    public long dropped() {
+        return dropped.get();
+    }
+    
+    private void run() {
+        List<UserRecommendations> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                // Wait for the first item, then take whatever else is ready up to a full batch
+                UserRecommendations first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                // Shutting down; flush what is left below
+            }
+        }
+        queue.drainTo(batch);
+        write(batch);
+    }
+    
+    private void write(List<UserRecommendations> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // Only the newest set per user matters
+        Map<String, UserRecommendations> latest = new LinkedHashMap<>();
+        for (UserRecommendations stored : batch) {
+            latest.put(stored.userId, stored);
+        }
+        List<WriteModel<UserRecommendations>> replacements = new ArrayList<>(latest.size());
+        for (UserRecommendations stored : latest.values()) {
+            replacements.add(new ReplaceOneModel<>(Filters.eq("_id", stored.userId), stored, new ReplaceOptions().upsert(true)));
+        }
+        try {
+            UserRecommendations.mongoCollection().bulkWrite(replacements, new BulkWriteOptions().ordered(false));
+        } catch (Exception e) {
+            // Persisted recommendations are an audit trail; losing a batch does not affect serving
+            LOG.errorf("Failed to persist recommendations for %d users: %s", latest.size(), e.getMessage());
+        } finally {
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.redhat.ecommerce.recommendation.service;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.redhat.ecommerce.recommendation.engine.BehaviorWeights;
+import com.redhat.ecommerce.recommendation.model.UserBehavior;
+import com.redhat.ecommerce.recommendation.model.UserProfile;
+import io.quarkus.runtime.StartupEvent;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps user_profiles in step with ingested behavior
+ * Every update is an upsert of $inc/$max/$push-with-$slice, so updates commute: live batches and the
+ * one-off history backfill can be applied in any order and in any number of pieces
+ */
+@ApplicationScoped
+public class UserProfileService {
+    
+    private static final Logger LOG = Logger.getLogger(UserProfileService.class);
+    
+    // Claimed with an insert, so only one instance runs the backfill; records progress so a failed run resumes
+    private static final String BACKFILL_MARKER = "__backfill";
+    
+    private static final int BACKFILL_CHUNK = 5000;
+    
+    // A running backfill renews this after every chunk; an older claim is taken over
+    private static final Duration BACKFILL_LEASE = Duration.ofMinutes(5);
+    
+    // Batches waiting for a category lookup; past this their category weights are dropped
+    private static final int CATEGORY_LOOKUP_BACKLOG = 1000;
+    
+    // Category lookups for live batches, so the ingestion flusher never waits on the Product Service
+    private final ExecutorService categoryLookups = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(CATEGORY_LOOKUP_BACKLOG), runnable -> {
+                Thread thread = new Thread(runnable, "user-profile-categories");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+    
+    @Inject
+    ProductCategories productCategories;
+    
+    @ConfigProperty(name = "recommendation.profiles.recent-size", defaultValue = "50")
+    int recentSize;
+    
+    @ConfigProperty(name = "recommendation.profiles.backfill-on-startup", defaultValue = "true")
+    boolean backfillOnStartup;
+    
+    void onStart(@Observes StartupEvent event) {
+        if (!backfillOnStartup) {
+            return;
+        }
+        Thread backfill = new Thread(this::backfill, "user-profile-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        categoryLookups.shutdownNow();
+    }
+    
+    public UserProfile get(String userId) {
+        return UserProfile.findByUser(userId);
+    }
+    
+    /**
+     * Fold a batch of events into their users' profiles, one upsert per user
+     * Only categories already known are applied here; the weights of the others are added once looked up
+     */
+    public void apply(List<UserBehavior> behaviors) {
+        fold(behaviors, false);
+    }
+    
+    /**
+     * A backfill update only matches while the profile's backfilledThrough is below the user's newest event
+     * in the chunk, so replaying a chunk a second time changes nothing
+     */
+    private void fold(List<UserBehavior> behaviors, boolean backfill) {
+        Map<String, List<UserBehavior>> byUser = new LinkedHashMap<>();
+        Set<String> productIds = new HashSet<>();
+        for (UserBehavior behavior : behaviors) {
+            // Exposures describe what was served, not what the user did
+            if (behavior.userId == null || behavior.behaviorType == null
+                    || behavior.behaviorType == UserBehavior.BehaviorType.EXPOSURE) {
+                continue;
+            }
+            byUser.computeIfAbsent(behavior.userId, id -> new ArrayList<>()).add(behavior);
+            if (behavior.productId != null) {
+                productIds.add(behavior.productId);
+            }
+        }
+        if (byUser.isEmpty()) {
+            return;
+        }
+        
+        Map<String, String> categories = backfill
+                ? productCategories.resolve(productIds)
+                : productCategories.cached(productIds);
+        List<WriteModel<UserProfile>> updates = new ArrayList<>(byUser.size());
+        byUser.forEach((userId, events) -> {
+            Bson filter = Filters.eq("_id", userId);
+            Document update = updateFor(events, categories);
+            if (backfill) {
+                ObjectId through = events.stream().map(behavior -> behavior.id).max(ObjectId::compareTo).orElseThrow();
+                filter = Filters.and(filter, Filters.not(Filters.gte("backfilledThrough", through)));
+                ((Document) update.computeIfAbsent("$max", key -> new Document())).append("backfilledThrough", through);
+            }
+            updates.add(new UpdateOneModel<>(filter, update, new UpdateOptions().upsert(true)));
+        });
+        try {
+            UserProfile.mongoCollection().bulkWrite(updates, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            // An already replayed profile does not match its guard, and the upsert then collides with it
+            boolean onlyReplayed = backfill && e.getWriteErrors().stream()
+                    .allMatch(error -> ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY);
+            if (!onlyReplayed) {
+                throw e;
+            }
+        }
+        if (!backfill && categories.size() < productIds.size()) {
+            categoryLookups.execute(() -> addCategoryWeights(byUser, categories.keySet()));
+        }
+    }
+    
+    /**
+     * The category weights fold left out because the products' categories were not known yet
+     */
+    private void addCategoryWeights(Map<String, List<UserBehavior>> byUser, Set<String> applied) {
+        Set<String> productIds = new HashSet<>();
+        byUser.values().forEach(events -> events.forEach(behavior -> {
+            if (behavior.productId != null && !applied.contains(behavior.productId)) {
+                productIds.add(behavior.productId);
+            }
+        }));
+        try {
+            Map<String, String> categories = productCategories.resolve(productIds);
+            List<WriteModel<UserProfile>> updates = new ArrayList<>();
+            byUser.forEach((userId, events) -> {
+                Document inc = new Document();
+                for (UserBehavior behavior : events) {
+                    String categoryId = categories.get(behavior.productId);
+                    float weight = BehaviorWeights.of(behavior.behaviorType);
+                    if (categoryId != null && weight > 0 && !applied.contains(behavior.productId)) {
+                        inc.merge("categoryWeights." + categoryId, (double) weight,
+                                (a, b) -> (Double) a + (Double) b);
+                    }
+                }
+                if (!inc.isEmpty()) {
+                    updates.add(new UpdateOneModel<>(Filters.eq("_id", userId), new Document("$inc", inc),
+                            new UpdateOptions().upsert(true)));
+                }
+            });
+            if (!updates.isEmpty()) {
+                UserProfile.mongoCollection().bulkWrite(updates, new BulkWriteOptions().ordered(false));
+            }
+        } catch (Exception e) {
+            LOG.warnf("Could not add category weights for %d products: %s", productIds.size(), e.getMessage());
+        }
+    }
+    
+    private Document updateFor(List<UserBehavior> events, Map<String, String> categories) {
+        Document inc = new Document("totalInteractions", (long) events.size());
+        Map<String, Long> counts = new HashMap<>();
+        Map<String, Double> categoryWeights = new HashMap<>();
+        Instant last = null;
+        List<Document> recent = new ArrayList<>();
+        
+        for (UserBehavior behavior : events) {
+            counts.merge(behavior.behaviorType.name(), 1L, Long::sum);
+            String categoryId = categories.get(behavior.productId);
+            float weight = BehaviorWeights.of(behavior.behaviorType);
+            if (categoryId != null && weight > 0) {
+                categoryWeights.merge(categoryId, (double) weight, Double::sum);
+            }
+            if (behavior.timestamp != null && (last == null || behavior.timestamp.isAfter(last))) {
+                last = behavior.timestamp;
+            }
+            if (behavior.productId != null) {
+                recent.add(new Document("productId", behavior.productId)
+                        .append("behaviorType", behavior.behaviorType.name())
+                        .append("at", behavior.timestamp));
+            }
+        }
+        counts.forEach((type, count) -> inc.append("behaviorCounts." + type, count));
+        categoryWeights.forEach((categoryId, weight) -> inc.append("categoryWeights." + categoryId, weight));
+        
+        Document update = new Document("$inc", inc);
+        if (last != null) {
+            update.append("$max", new Document("lastActivity", last));
+        }
+        if (!recent.isEmpty()) {
+            // Sorted by time on the server, so out-of-order batches still keep the newest entries
+            update.append("$push", new Document("recentProducts", new Document("$each", recent)
+                    .append("$sort", new Document("at", 1))
+                    .append("$slice", -recentSize)));
+        }
+        return update;
+    }
+    
+    /**
+     * Builds profiles for behavior recorded before profiles existed
+     * Replays, in _id order, only events the ingestion pipeline did not fold in itself, so nothing still queued
+     * for ingestion is counted twice; progress is recorded after every chunk and a failed run is resumed by the
+     * next instance that starts once its lease has expired
+     */
+    private void backfill() {
+        MongoCollection<Document> profiles = UserProfile.mongoCollection().withDocumentClass(Document.class);
+        Document marker;
+        try {
+            marker = claimBackfill(profiles);
+        } catch (Exception e) {
+            LOG.errorf(e, "Could not claim the user profile backfill: %s", e.getMessage());
+            return;
+        }
+        if (marker == null) {
+            LOG.debug("User profiles already backfilled or being backfilled by another instance");
+            return;
+        }
+        
+        long started = System.nanoTime();
+        ObjectId lastId = marker.getObjectId("lastId");
+        long replayed = marker.get("replayed", 0L);
+        try {
+            while (true) {
+                Bson pending = Filters.ne("profiled", true);
+                if (lastId != null) {
+                    pending = Filters.and(pending, Filters.gt("_id", lastId));
+                }
+                List<UserBehavior> chunk = UserBehavior.mongoCollection().find(pending)
+                        .sort(Sorts.ascending("_id"))
+                        .limit(BACKFILL_CHUNK)
+                        .into(new ArrayList<>(BACKFILL_CHUNK));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                fold(chunk, true);
+                lastId = chunk.get(chunk.size() - 1).id;
+                replayed += chunk.size();
+                profiles.updateOne(Filters.eq("_id", BACKFILL_MARKER), Updates.combine(
+                        Updates.set("lastId", lastId), Updates.set("replayed", replayed),
+                        Updates.set("heartbeat", Instant.now())));
+            }
+            profiles.updateOne(Filters.eq("_id", BACKFILL_MARKER), Updates.set("state", "done"));
+            LOG.infof("User profiles backfilled from %d behavior events in %d ms",
+                    replayed, (System.nanoTime() - started) / 1_000_000);
+        } catch (Exception e) {
+            LOG.errorf(e, "User profile backfill stopped after %d events, it resumes from there on a later start: %s",
+                    replayed, e.getMessage());
+        }
+    }
+    
+    /**
+     * The progress marker if this instance now owns the backfill, null if it is done or owned elsewhere
+     */
+    private Document claimBackfill(MongoCollection<Document> profiles) {
+        Instant now = Instant.now();
+        Document marker = new Document("_id", BACKFILL_MARKER).append("state", "running").append("heartbeat", now);
+        try {
+            profiles.insertOne(marker);
+            return marker;
+        } catch (MongoWriteException e) {
+            if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) {
+                throw e;
+            }
+        }
+        return profiles.findOneAndUpdate(
+                Filters.and(Filters.eq("_id", BACKFILL_MARKER), Filters.eq("state", "running"),
+                        Filters.lt("heartbeat", now.minus(BACKFILL_LEASE))),
+                Updates.set("heartbeat", now),
+                new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER));
+    }
+}
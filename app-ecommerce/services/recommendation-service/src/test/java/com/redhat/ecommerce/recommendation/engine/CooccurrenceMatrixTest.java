@@ -0,0 +1,62 @@
+package com.redhat.ecommerce.recommendation.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CooccurrenceMatrixTest {
+    
+    @Test
+    void addIsSymmetric() {
+        CooccurrenceMatrix matrix = new CooccurrenceMatrix();
+        matrix.add(1, 2, 3f);
+        matrix.add(2, 1, 1f);
+        
+        assertEquals(4f, matrix.get(1, 2));
+        assertEquals(4f, matrix.get(2, 1));
+        assertEquals(0f, matrix.get(1, 3));
+    }
+    
+    @Test
+    void cellsThatDropToZeroAreRemoved() {
+        CooccurrenceMatrix matrix = new CooccurrenceMatrix();
+        // Enough neighbors to grow the row and force collisions, then remove every other one
+        for (int other = 1; other <= 500; other++) {
+            matrix.add(0, other, other);
+        }
+        for (int other = 1; other <= 500; other += 2) {
+            matrix.add(0, other, -other);
+        }
+        
+        assertEquals(250, matrix.neighborCount(0));
+        for (int other = 1; other <= 500; other++) {
+            assertEquals(other % 2 == 0 ? other : 0f, matrix.get(0, other), "cell " + other);
+        }
+        assertEquals(0, matrix.neighborCount(1));
+    }
+    
+    @Test
+    void topKRanksByCosine() {
+        CooccurrenceMatrix matrix = new CooccurrenceMatrix();
+        matrix.addNorm(0, 4);
+        matrix.addNorm(1, 1);
+        matrix.addNorm(2, 16);
+        matrix.addNorm(3, 4);
+        matrix.add(0, 1, 2f);
+        matrix.add(0, 2, 4f);
+        matrix.add(0, 3, 1f);
+        
+        CooccurrenceMatrix.Neighbors neighbors = matrix.topK(0, 2);
+        assertArrayEquals(new int[] {1, 2}, neighbors.items());
+        assertArrayEquals(new float[] {1f, 0.5f}, neighbors.scores(), 1e-6f);
+    }
+    
+    @Test
+    void normThatDropsToZeroIsCleared() {
+        CooccurrenceMatrix matrix = new CooccurrenceMatrix();
+        matrix.addNorm(0, 0.1 + 0.2);
+        matrix.addNorm(0, -0.3);
+        assertEquals(0.0, matrix.norm(0));
+    }
+}
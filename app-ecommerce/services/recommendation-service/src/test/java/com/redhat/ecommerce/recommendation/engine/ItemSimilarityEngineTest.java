@@ -0,0 +1,98 @@
+package com.redhat.ecommerce.recommendation.engine;
+
+import com.redhat.ecommerce.recommendation.model.UserBehavior.BehaviorType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItemSimilarityEngineTest {
+    
+    private static ItemSimilarityEngine engine(int historySize, int maxUsers) {
+        ItemSimilarityEngine engine = new ItemSimilarityEngine();
+        engine.enabled = true;
+        engine.minRatingThreshold = 3.0;
+        engine.historySize = historySize;
+        engine.maxUsers = maxUsers;
+        return engine;
+    }
+    
+    @Test
+    void cosineOfWeightedInteractions() {
+        ItemSimilarityEngine engine = engine(50, 100);
+        engine.record("u1", "a", BehaviorType.VIEW, null);
+        engine.record("u1", "b", BehaviorType.VIEW, null);
+        engine.record("u2", "a", BehaviorType.VIEW, null);
+        engine.record("u2", "a", BehaviorType.PURCHASE, null);
+        engine.record("u2", "b", BehaviorType.VIEW, null);
+        
+        // a = (1, 5), b = (1, 1)
+        List<ItemSimilarityEngine.ScoredProduct> similar = engine.similarTo("a", 10);
+        assertEquals(1, similar.size());
+        assertEquals("b", similar.get(0).productId());
+        assertEquals(6 / Math.sqrt(26 * 2), similar.get(0).score(), 1e-5);
+    }
+    
+    @Test
+    void repeatingAWeakerInteractionChangesNothing() {
+        ItemSimilarityEngine engine = engine(50, 100);
+        engine.record("u1", "a", BehaviorType.PURCHASE, null);
+        engine.record("u1", "b", BehaviorType.VIEW, null);
+        engine.record("u2", "a", BehaviorType.VIEW, null);
+        engine.record("u2", "c", BehaviorType.VIEW, null);
+        double before = engine.similarTo("a", 10).get(0).score();
+        
+        engine.record("u1", "a", BehaviorType.VIEW, null);
+        engine.record("u1", "b", BehaviorType.CLICK, null);
+        
+        assertEquals(before, engine.similarTo("a", 10).get(0).score(), 1e-9);
+        assertEquals(4, engine.eventsProcessed());
+    }
+    
+    @Test
+    void evictedHistoryEntryIsSubtracted() {
+        ItemSimilarityEngine engine = engine(2, 100);
+        engine.record("u1", "a", BehaviorType.VIEW, null);
+        engine.record("u1", "b", BehaviorType.VIEW, null);
+        engine.record("u1", "c", BehaviorType.VIEW, null);
+        // a was evicted, so it no longer pairs with b
+        assertTrue(engine.similarTo("a", 10).isEmpty());
+        
+        engine.record("u1", "a", BehaviorType.VIEW, null);
+        // History is now {c, a}; b was evicted in turn and a is counted once, not twice
+        List<ItemSimilarityEngine.ScoredProduct> similar = engine.similarTo("a", 10);
+        assertEquals(1, similar.size());
+        assertEquals("c", similar.get(0).productId());
+        assertEquals(1.0, similar.get(0).score(), 1e-6);
+        assertTrue(engine.similarTo("b", 10).isEmpty());
+    }
+    
+    @Test
+    void evictedUserIsSubtracted() {
+        ItemSimilarityEngine engine = engine(50, 1);
+        engine.record("u1", "a", BehaviorType.VIEW, null);
+        engine.record("u1", "b", BehaviorType.VIEW, null);
+        engine.record("u2", "a", BehaviorType.VIEW, null);
+        engine.record("u2", "c", BehaviorType.VIEW, null);
+        
+        assertFalse(engine.knowsUser("u1"));
+        List<ItemSimilarityEngine.ScoredProduct> similar = engine.similarTo("a", 10);
+        assertEquals(1, similar.size());
+        assertEquals("c", similar.get(0).productId());
+        assertEquals(1.0, similar.get(0).score(), 1e-6);
+    }
+    
+    @Test
+    void recommendsNeighborsOfTheUsersItems() {
+        ItemSimilarityEngine engine = engine(50, 100);
+        engine.record("u1", "a", BehaviorType.VIEW, null);
+        engine.record("u1", "b", BehaviorType.VIEW, null);
+        engine.record("u2", "a", BehaviorType.VIEW, null);
+        
+        List<ItemSimilarityEngine.ScoredProduct> recommended = engine.recommendFor("u2", 10, 10);
+        assertEquals(List.of("b"), recommended.stream().map(ItemSimilarityEngine.ScoredProduct::productId).toList());
+    }
+}
@@ -0,0 +1,94 @@
+package com.redhat.ecommerce.recommendation.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimilarityModelTest {
+    
+    // Sorted by UTF-8 bytes: the two-byte é sorts after every ASCII id
+    private static final String[] IDS = {"a", "b", "é"};
+    private static final int[] ROWS = {0, 2, 3, 3};
+    private static final int[] NEIGHBORS = {1, 2, 0};
+    private static final float[] SCORES = {0.9f, 0.4f, 0.9f};
+    private static final float[] POPULARITY = {1f, 0.5f, 0f};
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void writeThenOpenRoundTrips() throws IOException {
+        Path file = dir.resolve("model.bin");
+        SimilarityModel.write(file, 7L, IDS, ROWS, NEIGHBORS, SCORES, POPULARITY);
+        
+        SimilarityModel model = SimilarityModel.open(file);
+        assertEquals(7L, model.version());
+        assertEquals(3, model.productCount());
+        assertEquals(List.of(new ItemSimilarityEngine.ScoredProduct("b", 0.9f),
+                new ItemSimilarityEngine.ScoredProduct("é", 0.4f)), model.neighbors("a", 5));
+        assertEquals(List.of(new ItemSimilarityEngine.ScoredProduct("a", 0.9f)), model.neighbors("b", 5));
+        assertEquals(List.of(), model.neighbors("é", 5));
+        assertEquals(0.5f, model.popularity("b"));
+    }
+    
+    @Test
+    void neighborsStopAtK() throws IOException {
+        Path file = dir.resolve("model.bin");
+        SimilarityModel.write(file, 1L, IDS, ROWS, NEIGHBORS, SCORES, POPULARITY);
+        
+        assertEquals(List.of(new ItemSimilarityEngine.ScoredProduct("b", 0.9f)),
+                SimilarityModel.open(file).neighbors("a", 1));
+    }
+    
+    @Test
+    void unknownProductsHaveNoNeighbors() throws IOException {
+        Path file = dir.resolve("model.bin");
+        SimilarityModel.write(file, 1L, IDS, ROWS, NEIGHBORS, SCORES, POPULARITY);
+        
+        SimilarityModel model = SimilarityModel.open(file);
+        assertEquals(List.of(), model.neighbors("c", 5));
+        assertEquals(List.of(), model.neighbors(null, 5));
+        assertEquals(0f, model.popularity("c"));
+    }
+    
+    @Test
+    void rewriteReplacesTheFile() throws IOException {
+        Path file = dir.resolve("model.bin");
+        SimilarityModel.write(file, 1L, IDS, ROWS, NEIGHBORS, SCORES, POPULARITY);
+        SimilarityModel.write(file, 2L, new String[] {"x"}, new int[] {0, 0}, new int[0], new float[0], new float[] {1f});
+        
+        SimilarityModel model = SimilarityModel.open(file);
+        assertEquals(2L, model.version());
+        assertEquals(1, model.productCount());
+        assertFalse(Files.exists(dir.resolve("model.bin.tmp")));
+    }
+    
+    @Test
+    void truncatedFilesAreRejected() throws IOException {
+        Path file = dir.resolve("model.bin");
+        SimilarityModel.write(file, 1L, IDS, ROWS, NEIGHBORS, SCORES, POPULARITY);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        
+        IOException error = assertThrows(IOException.class, () -> SimilarityModel.open(file));
+        assertTrue(error.getMessage().startsWith("Truncated"), error.getMessage());
+    }
+    
+    @Test
+    void otherFilesAreRejected() throws IOException {
+        Path file = dir.resolve("model.bin");
+        Files.write(file, new byte[64]);
+        
+        assertThrows(IOException.class, () -> SimilarityModel.open(file));
+    }
+}
@@ -0,0 +1,73 @@
+package com.redhat.ecommerce.recommendation.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TopKTest {
+    
+    @Test
+    void keepsTheBestBestFirst() {
+        TopK top = new TopK(3);
+        top.offer(1, 0.5f);
+        top.offer(2, 0.9f);
+        top.offer(3, 0.1f);
+        top.offer(4, 0.7f);
+        top.offer(5, 0.3f);
+        
+        int[] items = new int[3];
+        float[] scores = new float[3];
+        assertEquals(3, top.drain(items, scores));
+        assertArrayEquals(new int[] {2, 4, 1}, items);
+        assertArrayEquals(new float[] {0.9f, 0.7f, 0.5f}, scores);
+        assertEquals(0, top.size());
+    }
+    
+    @Test
+    void fewerOffersThanK() {
+        TopK top = new TopK(5);
+        top.offer(7, 1f);
+        top.offer(8, 2f);
+        
+        int[] items = new int[5];
+        float[] scores = new float[5];
+        assertEquals(2, top.drain(items, scores));
+        assertArrayEquals(new int[] {8, 7}, Arrays.copyOf(items, 2));
+    }
+    
+    @Test
+    void zeroKeepsNothing() {
+        TopK top = new TopK(0);
+        top.offer(1, 1f);
+        
+        assertEquals(0, top.size());
+        assertEquals(0, top.drain(new int[0], new float[0]));
+    }
+    
+    @Test
+    void matchesAFullSort() {
+        Random random = new Random(42);
+        float[] all = new float[1000];
+        TopK top = new TopK(20);
+        for (int item = 0; item < all.length; item++) {
+            all[item] = random.nextFloat();
+            top.offer(item, all[item]);
+        }
+        
+        int[] expected = IntStream.range(0, all.length).boxed()
+                .sorted(Comparator.comparingDouble(item -> -all[item]))
+                .limit(20)
+                .mapToInt(Integer::intValue)
+                .toArray();
+        int[] items = new int[20];
+        float[] scores = new float[20];
+        top.drain(items, scores);
+        assertArrayEquals(expected, items);
+    }
+}
@@ -0,0 +1,60 @@
+package com.redhat.ecommerce.recommendation.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExperimentServiceTest {
+    
+    private static final int USERS = 100_000;
+    
+    @Test
+    void bucketIsStable() {
+        assertEquals(ExperimentService.bucket("ranking", "user-42"), ExperimentService.bucket("ranking", "user-42"));
+    }
+    
+    @Test
+    void bucketsAreInRange() {
+        for (int i = 0; i < USERS; i++) {
+            int bucket = ExperimentService.bucket("ranking", "user-" + i);
+            assertTrue(bucket >= 0 && bucket < ExperimentService.BUCKETS, () -> "bucket " + bucket);
+        }
+    }
+    
+    /**
+     * Sequential ids, as most user ids are, still spread evenly: a 10/90 split must serve about 10%
+     */
+    @Test
+    void sequentialIdsSpreadEvenly() {
+        int[] deciles = new int[10];
+        for (int i = 0; i < USERS; i++) {
+            deciles[ExperimentService.bucket("ranking", "user-" + i) * 10 / ExperimentService.BUCKETS]++;
+        }
+        
+        int expected = USERS / 10;
+        for (int decile = 0; decile < deciles.length; decile++) {
+            int count = deciles[decile];
+            assertTrue(Math.abs(count - expected) < expected * 0.05, "decile " + decile + " has " + count + " users");
+        }
+    }
+    
+    /**
+     * Being in the first half of one experiment says nothing about the next experiment
+     */
+    @Test
+    void experimentsAreIndependent() {
+        int half = ExperimentService.BUCKETS / 2;
+        int same = 0;
+        for (int i = 0; i < USERS; i++) {
+            String userId = "user-" + i;
+            boolean first = ExperimentService.bucket("ranking", userId) < half;
+            boolean second = ExperimentService.bucket("ranking-v2", userId) < half;
+            if (first == second) {
+                same++;
+            }
+        }
+        
+        assertTrue(Math.abs(same - USERS / 2) < USERS * 0.02, same + " users fell on the same side");
+    }
+}